@@ -0,0 +1,124 @@
+package com.axelor.script.benchmark;
+
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.repo.RoleRepository;
+import com.axelor.db.JPA;
+import com.axelor.inject.Beans;
+import com.axelor.meta.db.MetaField;
+import com.axelor.meta.db.MetaModel;
+import com.axelor.meta.db.repo.MetaModelRepository;
+import java.util.List;
+
+/** Seeds and cleans the rows used by the permission benchmarks. */
+final class BenchmarkData {
+
+  static final String PACKAGE_NAME = "com.axelor.script.benchmark.db";
+  static final String ROLE_PREFIX = "BenchRole";
+
+  private static final int FLUSH_SIZE = 500;
+
+  private BenchmarkData() {}
+
+  static void seed(int models, int fields, int roles) {
+    int pending = 0;
+    for (int i = 0; i < models; i++) {
+      MetaModel metaModel = new MetaModel();
+      metaModel.setName("BenchModel" + i);
+      metaModel.setPackageName(PACKAGE_NAME);
+      metaModel.setFullName(PACKAGE_NAME + ".BenchModel" + i);
+      metaModel.setTableName("BENCH_MODEL_" + i);
+      metaModel.setGenerate(true);
+      JPA.em().persist(metaModel);
+
+      for (int j = 0; j < fields; j++) {
+        MetaField metaField = new MetaField();
+        metaField.setName("field" + j);
+        metaField.setTypeName("String");
+        metaField.setMetaModel(metaModel);
+        metaField.setGenerate(true);
+        JPA.em().persist(metaField);
+        pending = flush(pending + 1);
+      }
+    }
+
+    for (int i = 0; i < roles; i++) {
+      Role role = new Role();
+      role.setName(ROLE_PREFIX + i);
+      JPA.em().persist(role);
+      pending = flush(pending + 1);
+    }
+  }
+
+  static List<MetaModel> models() {
+    return Beans.get(MetaModelRepository.class)
+        .all()
+        .filter("self.packageName = :packageName")
+        .bind("packageName", PACKAGE_NAME)
+        .order("id")
+        .fetch();
+  }
+
+  /** Removes the generated permissions so that every invocation starts from the same state. */
+  static void clearGenerated() {
+    for (Role role : roles()) {
+      if (role.getPermissions() != null) {
+        role.getPermissions().clear();
+      }
+      if (role.getMetaPermissions() != null) {
+        role.getMetaPermissions().clear();
+      }
+    }
+    JPA.flush();
+
+    String permissionPattern = ROLE_PREFIX + "%";
+    JPA.em()
+        .createQuery(
+            "DELETE FROM MetaPermissionRule self WHERE self.metaPermission.id IN "
+                + "(SELECT p.id FROM MetaPermission p WHERE p.name LIKE :pattern)")
+        .setParameter("pattern", permissionPattern)
+        .executeUpdate();
+    JPA.em()
+        .createQuery("DELETE FROM MetaPermission self WHERE self.name LIKE :pattern")
+        .setParameter("pattern", permissionPattern)
+        .executeUpdate();
+    JPA.em()
+        .createQuery("DELETE FROM Permission self WHERE self.name LIKE :pattern")
+        .setParameter("pattern", permissionPattern)
+        .executeUpdate();
+  }
+
+  static void clearAll() {
+    clearGenerated();
+    JPA.em()
+        .createQuery("DELETE FROM Role self WHERE self.name LIKE :pattern")
+        .setParameter("pattern", ROLE_PREFIX + "%")
+        .executeUpdate();
+    JPA.em()
+        .createQuery(
+            "DELETE FROM MetaField self WHERE self.metaModel.id IN "
+                + "(SELECT m.id FROM MetaModel m WHERE m.packageName = :packageName)")
+        .setParameter("packageName", PACKAGE_NAME)
+        .executeUpdate();
+    JPA.em()
+        .createQuery("DELETE FROM MetaModel self WHERE self.packageName = :packageName")
+        .setParameter("packageName", PACKAGE_NAME)
+        .executeUpdate();
+  }
+
+  private static List<Role> roles() {
+    return Beans.get(RoleRepository.class)
+        .all()
+        .filter("self.name LIKE :pattern")
+        .bind("pattern", ROLE_PREFIX + "%")
+        .fetch();
+  }
+
+  private static int flush(int pending) {
+    if (pending < FLUSH_SIZE) {
+      return pending;
+    }
+    JPA.flush();
+    JPA.clear();
+    return 0;
+  }
+}
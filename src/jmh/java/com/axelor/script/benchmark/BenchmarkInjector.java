@@ -0,0 +1,46 @@
+package com.axelor.script.benchmark;
+
+import com.axelor.app.AppSettings;
+import com.axelor.db.JpaModule;
+import com.axelor.inject.Beans;
+import com.axelor.script.module.AxelorScript;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/** Boots the module against the embedded database of {@code axelor-config.properties}. */
+final class BenchmarkInjector {
+
+  private static final String PERSISTENCE_UNIT = "benchmarkUnit";
+  private static final String TRANSLATION_MEMORY_KEY = "script.translation.memory.file";
+
+  private static Injector injector;
+
+  private BenchmarkInjector() {}
+
+  static synchronized Injector get() {
+    if (injector == null) {
+      deleteTranslationMemory();
+      injector = Guice.createInjector(new JpaModule(PERSISTENCE_UNIT), new AxelorScript());
+      // makes Beans.get() resolve through this injector
+      injector.getInstance(Beans.class);
+    }
+    return injector;
+  }
+
+  /** Every fork starts with an empty translation memory. */
+  private static void deleteTranslationMemory() {
+    String file = AppSettings.get().get(TRANSLATION_MEMORY_KEY, null);
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(Paths.get(file));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
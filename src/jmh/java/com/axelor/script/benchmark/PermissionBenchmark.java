@@ -0,0 +1,82 @@
+package com.axelor.script.benchmark;
+
+import com.axelor.db.JPA;
+import com.axelor.script.service.FieldService;
+import com.axelor.script.service.PermissionService;
+import com.google.inject.Injector;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Generation of model and field permissions from scratch, one generation per iteration. The
+ * default sizes stay below 200k rules so that every combination runs on H2, larger ones can be
+ * given from the command line, for example {@code -Pjmh.includes=Permission} with {@code -p
+ * models=10000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PermissionBenchmark {
+
+  @Param({"50", "200"})
+  public int models;
+
+  @Param({"10", "50"})
+  public int fields;
+
+  @Param({"5", "20"})
+  public int roles;
+
+  private PermissionService permissionService;
+  private FieldService fieldService;
+
+  @Setup(Level.Trial)
+  public void seed() {
+    Injector injector = BenchmarkInjector.get();
+    permissionService = injector.getInstance(PermissionService.class);
+    fieldService = injector.getInstance(FieldService.class);
+
+    JPA.runInTransaction(() -> BenchmarkData.seed(models, fields, roles));
+    JPA.clear();
+  }
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    JPA.runInTransaction(BenchmarkData::clearGenerated);
+    JPA.clear();
+  }
+
+  @TearDown(Level.Trial)
+  public void drop() {
+    JPA.runInTransaction(BenchmarkData::clearAll);
+    JPA.clear();
+  }
+
+  @Benchmark
+  public void generateMetaPermissions() {
+    JPA.runInTransaction(() -> permissionService.generateMetaPermissions(BenchmarkData.models()));
+    JPA.clear();
+  }
+
+  @Benchmark
+  public void generateMetaPermissionRules() {
+    JPA.runInTransaction(() -> fieldService.generateMetaPermissionRules(BenchmarkData.models()));
+    JPA.clear();
+  }
+
+  /** Outside a transaction the rules are generated on script.generation.parallelism workers. */
+  @Benchmark
+  public void generateMetaPermissionRulesInParallel() {
+    fieldService.generateMetaPermissionRules(BenchmarkData.models());
+    JPA.clear();
+  }
+}
@@ -0,0 +1,58 @@
+package com.axelor.script.benchmark;
+
+import com.axelor.script.service.DictionaryService;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Batch translation through the stub provider, with and without translation memory hits. */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TranslationBenchmark {
+
+  @Param({"100", "1000"})
+  public int texts;
+
+  private DictionaryService dictionaryService;
+  private List<String> cachedTexts;
+  private String missPrefix;
+  private final AtomicLong runs = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setup() {
+    dictionaryService = BenchmarkInjector.get().getInstance(DictionaryService.class);
+    cachedTexts = texts("Cached label");
+    // unique per trial, so that texts of earlier trials kept on disk never turn misses into hits
+    missPrefix = "Label " + UUID.randomUUID() + " ";
+    dictionaryService.getTranslations("en", "fr", cachedTexts);
+  }
+
+  @Benchmark
+  public Map<String, String> translateMisses() {
+    List<String> misses = texts(missPrefix + runs.incrementAndGet());
+    return dictionaryService.getTranslations("en", "fr", misses);
+  }
+
+  @Benchmark
+  public Map<String, String> translateHits() {
+    return dictionaryService.getTranslations("en", "fr", cachedTexts);
+  }
+
+  private List<String> texts(String prefix) {
+    return IntStream.range(0, texts).mapToObj(i -> prefix + " " + i).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,25 @@
+package com.axelor.script.db.repo;
+
+import com.axelor.meta.db.MetaPermissionRule;
+import com.axelor.meta.db.repo.MetaPermissionRuleRepository;
+import com.axelor.script.service.impl.EffectivePermissionCache;
+import com.google.inject.Inject;
+
+/** Drops the cached role permissions once a rule change ends its transaction. */
+public class MetaPermissionRuleScriptRepository extends MetaPermissionRuleRepository {
+
+  @Inject private EffectivePermissionCache permissionCache;
+
+  @Override
+  public MetaPermissionRule save(MetaPermissionRule rule) {
+    MetaPermissionRule saved = super.save(rule);
+    permissionCache.invalidateAllOnCompletion();
+    return saved;
+  }
+
+  @Override
+  public void remove(MetaPermissionRule rule) {
+    super.remove(rule);
+    permissionCache.invalidateAllOnCompletion();
+  }
+}
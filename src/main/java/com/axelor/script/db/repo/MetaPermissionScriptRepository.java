@@ -0,0 +1,25 @@
+package com.axelor.script.db.repo;
+
+import com.axelor.meta.db.MetaPermission;
+import com.axelor.meta.db.repo.MetaPermissionRepository;
+import com.axelor.script.service.impl.EffectivePermissionCache;
+import com.google.inject.Inject;
+
+/** Drops the cached role permissions once a meta permission change ends its transaction. */
+public class MetaPermissionScriptRepository extends MetaPermissionRepository {
+
+  @Inject private EffectivePermissionCache permissionCache;
+
+  @Override
+  public MetaPermission save(MetaPermission metaPermission) {
+    MetaPermission saved = super.save(metaPermission);
+    permissionCache.invalidateAllOnCompletion();
+    return saved;
+  }
+
+  @Override
+  public void remove(MetaPermission metaPermission) {
+    super.remove(metaPermission);
+    permissionCache.invalidateAllOnCompletion();
+  }
+}
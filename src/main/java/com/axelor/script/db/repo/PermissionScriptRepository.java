@@ -0,0 +1,25 @@
+package com.axelor.script.db.repo;
+
+import com.axelor.auth.db.Permission;
+import com.axelor.auth.db.repo.PermissionRepository;
+import com.axelor.script.service.impl.EffectivePermissionCache;
+import com.google.inject.Inject;
+
+/** Drops the cached role permissions once a permission change ends its transaction. */
+public class PermissionScriptRepository extends PermissionRepository {
+
+  @Inject private EffectivePermissionCache permissionCache;
+
+  @Override
+  public Permission save(Permission permission) {
+    Permission saved = super.save(permission);
+    permissionCache.invalidateAllOnCompletion();
+    return saved;
+  }
+
+  @Override
+  public void remove(Permission permission) {
+    super.remove(permission);
+    permissionCache.invalidateAllOnCompletion();
+  }
+}
@@ -0,0 +1,30 @@
+package com.axelor.script.db.repo;
+
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.repo.RoleRepository;
+import com.axelor.script.service.impl.EffectivePermissionCache;
+import com.google.inject.Inject;
+
+/** Drops the cached permissions of a role once its changes end their transaction. */
+public class RoleScriptRepository extends RoleRepository {
+
+  @Inject private EffectivePermissionCache permissionCache;
+
+  @Override
+  public Role save(Role role) {
+    Role saved = super.save(role);
+    if (saved.getId() != null) {
+      permissionCache.invalidateOnCompletion(saved.getId());
+    }
+    return saved;
+  }
+
+  @Override
+  public void remove(Role role) {
+    Long roleId = role.getId();
+    super.remove(role);
+    if (roleId != null) {
+      permissionCache.invalidateOnCompletion(roleId);
+    }
+  }
+}
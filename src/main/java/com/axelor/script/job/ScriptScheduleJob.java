@@ -0,0 +1,30 @@
+package com.axelor.script.job;
+
+import com.axelor.inject.Beans;
+import com.axelor.script.service.ScriptScheduleService;
+import com.google.inject.persist.UnitOfWork;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+/**
+ * Runs the queued script jobs, scheduled through the "script-off-peak" MetaSchedule. The trigger
+ * only needs to fire often enough to notice the start of the off-peak window.
+ */
+@DisallowConcurrentExecution
+public class ScriptScheduleJob implements Job {
+
+  @Override
+  public void execute(JobExecutionContext context) throws JobExecutionException {
+    UnitOfWork unitOfWork = Beans.get(UnitOfWork.class);
+    unitOfWork.begin();
+    try {
+      Beans.get(ScriptScheduleService.class).runQueue();
+    } catch (Exception e) {
+      throw new JobExecutionException(e);
+    } finally {
+      unitOfWork.end();
+    }
+  }
+}
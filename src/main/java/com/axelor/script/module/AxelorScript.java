@@ -1,18 +1,82 @@
 package com.axelor.script.module;
 
+import com.axelor.app.AppSettings;
 import com.axelor.app.AxelorModule;
+import com.axelor.auth.db.repo.PermissionRepository;
+import com.axelor.auth.db.repo.RoleRepository;
+import com.axelor.meta.db.repo.MetaPermissionRepository;
+import com.axelor.meta.db.repo.MetaPermissionRuleRepository;
+import com.axelor.script.db.repo.MetaPermissionRuleScriptRepository;
+import com.axelor.script.db.repo.MetaPermissionScriptRepository;
+import com.axelor.script.db.repo.PermissionScriptRepository;
+import com.axelor.script.db.repo.RoleScriptRepository;
 import com.axelor.script.service.DictionaryService;
 import com.axelor.script.service.FieldService;
+import com.axelor.script.service.IncrementalGenerationService;
+import com.axelor.script.service.PermissionPlanService;
 import com.axelor.script.service.PermissionService;
+import com.axelor.script.service.PermissionTransferService;
+import com.axelor.script.service.ScriptAuditService;
+import com.axelor.script.service.ScriptJobService;
+import com.axelor.script.service.ScriptLockService;
+import com.axelor.script.service.ScriptMetricsService;
+import com.axelor.script.service.ScriptScheduleService;
+import com.axelor.script.service.TranslationProvider;
+import com.axelor.script.service.TranslationService;
 import com.axelor.script.service.impl.DictionaryServiceImpl;
 import com.axelor.script.service.impl.FieldServiceImpl;
+import com.axelor.script.service.impl.GoogleTranslationProvider;
+import com.axelor.script.service.impl.IncrementalGenerationServiceImpl;
+import com.axelor.script.service.impl.LocalDictionaryTranslationProvider;
+import com.axelor.script.service.impl.PermissionPlanServiceImpl;
 import com.axelor.script.service.impl.PermissionServiceImpl;
+import com.axelor.script.service.impl.PermissionTransferServiceImpl;
+import com.axelor.script.service.impl.ScriptAuditServiceImpl;
+import com.axelor.script.service.impl.ScriptJobServiceImpl;
+import com.axelor.script.service.impl.ScriptLockServiceImpl;
+import com.axelor.script.service.impl.ScriptMetricsServiceImpl;
+import com.axelor.script.service.impl.ScriptScheduleServiceImpl;
+import com.axelor.script.service.impl.StubTranslationProvider;
+import com.axelor.script.service.impl.TranslationServiceImpl;
 
 public class AxelorScript extends AxelorModule {
+  private static final String TRANSLATION_PROVIDER_KEY = "script.translation.provider";
+
   @Override
   protected void configure() {
     bind(PermissionService.class).to(PermissionServiceImpl.class);
     bind(FieldService.class).to(FieldServiceImpl.class);
     bind(DictionaryService.class).to(DictionaryServiceImpl.class);
+    bind(ScriptJobService.class).to(ScriptJobServiceImpl.class);
+    bind(TranslationService.class).to(TranslationServiceImpl.class);
+    bind(ScriptMetricsService.class).to(ScriptMetricsServiceImpl.class);
+    bind(IncrementalGenerationService.class).to(IncrementalGenerationServiceImpl.class);
+    bind(PermissionPlanService.class).to(PermissionPlanServiceImpl.class);
+    bind(ScriptAuditService.class).to(ScriptAuditServiceImpl.class);
+    bind(PermissionTransferService.class).to(PermissionTransferServiceImpl.class);
+    bind(ScriptLockService.class).to(ScriptLockServiceImpl.class);
+    bind(ScriptScheduleService.class).to(ScriptScheduleServiceImpl.class);
+    bind(RoleRepository.class).to(RoleScriptRepository.class);
+    bind(PermissionRepository.class).to(PermissionScriptRepository.class);
+    bind(MetaPermissionRepository.class).to(MetaPermissionScriptRepository.class);
+    bind(MetaPermissionRuleRepository.class).to(MetaPermissionRuleScriptRepository.class);
+    bindTranslationProvider();
+  }
+
+  private void bindTranslationProvider() {
+    String provider = AppSettings.get().get(TRANSLATION_PROVIDER_KEY, "google");
+    switch (provider) {
+      case "local":
+        bind(TranslationProvider.class).to(LocalDictionaryTranslationProvider.class);
+        break;
+      case "stub":
+        bind(TranslationProvider.class).to(StubTranslationProvider.class);
+        break;
+      case "google":
+        bind(TranslationProvider.class).to(GoogleTranslationProvider.class);
+        break;
+      default:
+        throw new IllegalStateException("Unknown translation provider: " + provider);
+    }
   }
 }
@@ -1,5 +1,19 @@
 package com.axelor.script.service;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface DictionaryService {
   String getTranslation(String from, String to, String request);
+
+  /**
+   * Translates many texts for one language pair. Texts are packed into a few provider requests
+   * which are sent concurrently, within the configured concurrency and rate limits.
+   *
+   * @return the translations keyed by source text, texts that could not be translated are absent
+   */
+  Map<String, String> getTranslations(String from, String to, Collection<String> requests);
+
+  /** Hit and miss counters of the translation memory. */
+  Map<String, Long> getCacheStatistics();
 }
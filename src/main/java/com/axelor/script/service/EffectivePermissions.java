@@ -0,0 +1,52 @@
+package com.axelor.script.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled grants of one role, read without any database access. Grants are {@link
+ * PermissionPlan} flags combined from all the permissions of the role.
+ *
+ * <p>Model grants come from the role's unconditional permissions, an object ending with {@code *}
+ * covers every model of its package prefix. Field grants come from the rules of the role's meta
+ * permissions, a field without rule follows the model grants.
+ */
+public class EffectivePermissions {
+
+  private static final int FIELD_FLAGS =
+      PermissionPlan.CAN_READ | PermissionPlan.CAN_WRITE | PermissionPlan.CAN_EXPORT;
+
+  private final Map<String, Integer> modelGrants;
+  private final Map<String, Integer> prefixGrants;
+  private final Map<String, Map<String, Integer>> fieldGrants;
+
+  public EffectivePermissions(
+      Map<String, Integer> modelGrants,
+      Map<String, Integer> prefixGrants,
+      Map<String, Map<String, Integer>> fieldGrants) {
+    this.modelGrants = Collections.unmodifiableMap(new HashMap<>(modelGrants));
+    this.prefixGrants = Collections.unmodifiableMap(new LinkedHashMap<>(prefixGrants));
+    Map<String, Map<String, Integer>> fields = new HashMap<>();
+    fieldGrants.forEach((model, grants) -> fields.put(model, Map.copyOf(grants)));
+    this.fieldGrants = Collections.unmodifiableMap(fields);
+  }
+
+  /** @param model the full name of the model */
+  public int getModelGrants(String model) {
+    int grants = modelGrants.getOrDefault(model, 0);
+    for (Map.Entry<String, Integer> prefix : prefixGrants.entrySet()) {
+      if (model.startsWith(prefix.getKey())) {
+        grants |= prefix.getValue();
+      }
+    }
+    return grants;
+  }
+
+  public int getFieldGrants(String model, String field) {
+    int grants = getModelGrants(model) & FIELD_FLAGS;
+    Integer rule = fieldGrants.getOrDefault(model, Collections.emptyMap()).get(field);
+    return rule == null ? grants : grants & rule;
+  }
+}
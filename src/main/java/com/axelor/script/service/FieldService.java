@@ -1,8 +1,32 @@
 package com.axelor.script.service;
 
+import com.axelor.auth.db.Role;
 import com.axelor.meta.db.MetaModel;
+import com.axelor.meta.db.MetaPermission;
 import java.util.List;
+import java.util.Map;
 
 public interface FieldService {
-  void generateMetaPermissionRules(List<MetaModel> models);
+  /**
+   * Generates the field rules of the given models for every role.
+   *
+   * @return the counts of this run, keyed by {@link ScriptMetricsService} counter name
+   */
+  Map<String, Integer> generateMetaPermissionRules(List<MetaModel> models);
+
+  /**
+   * Generates the field rules of the given models for every role, running the given check in each
+   * transaction of the run, role slices included, right before it commits. A check that throws
+   * rolls its transaction back and stops the run.
+   */
+  Map<String, Integer> generateMetaPermissionRules(List<MetaModel> models, Runnable beforeCommit);
+
+  /** Generates the field rules of the given models for the given roles only. */
+  Map<String, Integer> generateMetaPermissionRules(List<MetaModel> models, List<Role> roles);
+
+  /**
+   * Gives the role its own copy of a shared permission, to be edited without changing the other
+   * roles. Other permissions are returned as they are.
+   */
+  MetaPermission detachSharedPermission(Role role, MetaPermission metaPermission);
 }
@@ -0,0 +1,16 @@
+package com.axelor.script.service;
+
+import com.axelor.studio.db.AppScript;
+
+public interface IncrementalGenerationService {
+
+  /**
+   * Regenerates permissions and field rules only for the models and fields changed since the last
+   * generation, and for the roles created since then, then moves the generation watermarks.
+   * Runs in a single transaction, so it requires both watermarks: the first generation goes
+   * through the chunked {@link ScriptJobService} jobs.
+   *
+   * @return a short description of what was regenerated
+   */
+  String regenerateChanges(AppScript appScript);
+}
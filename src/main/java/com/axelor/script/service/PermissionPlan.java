@@ -0,0 +1,268 @@
+package com.axelor.script.service;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact desired and current state of the generated permissions, for every role x model x field.
+ *
+ * <p>Roles and models are referenced by their position in the plan. For each role, permissions are
+ * stored as one presence bit per model and field rules as one bit per (model, field) pair. The
+ * desired bits that are not current give the permissions and rules to create, created permissions
+ * grant everything ({@link #ALL_FLAGS}) as generation does.
+ *
+ * <p>Existing permissions and rules keep the grants an administrator gave them. The only deletes
+ * are the ones field generation makes: generated rules of fields that are no longer generated,
+ * and duplicate rules of a field.
+ */
+public class PermissionPlan {
+
+  public static final int CAN_READ = 1;
+  public static final int CAN_WRITE = 1 << 1;
+  public static final int CAN_CREATE = 1 << 2;
+  public static final int CAN_REMOVE = 1 << 3;
+  public static final int CAN_EXPORT = 1 << 4;
+  public static final int ALL_FLAGS = CAN_READ | CAN_WRITE | CAN_CREATE | CAN_REMOVE | CAN_EXPORT;
+
+  /** Receives the role and model positions of a plan cell. */
+  public interface CellConsumer {
+    void accept(int role, int model);
+  }
+
+  /** Receives the role, model and field name of a field rule. */
+  public interface RuleConsumer {
+    void accept(int role, int model, String field);
+  }
+
+  private final List<Long> roleIds;
+  private final List<String> roleNames;
+  private final List<Long> modelIds;
+  private final List<String> modelNames;
+  private final List<String> modelFullNames;
+
+  private final int[] fieldOffsets;
+  private final String[] fieldNames;
+  private final List<Map<String, Integer>> fieldIndexes = new ArrayList<>();
+
+  private final BitSet[] desiredPresent;
+  private final BitSet[] currentPresent;
+  private final BitSet[] desiredRules;
+  private final BitSet[] currentRules;
+
+  private final List<RuleDelete> ruleDeletes = new ArrayList<>();
+
+  /**
+   * @param fieldsByModel for each model, every generated field
+   */
+  public PermissionPlan(
+      List<Long> roleIds,
+      List<String> roleNames,
+      List<Long> modelIds,
+      List<String> modelNames,
+      List<String> modelFullNames,
+      List<List<String>> fieldsByModel) {
+    this.roleIds = roleIds;
+    this.roleNames = roleNames;
+    this.modelIds = modelIds;
+    this.modelNames = modelNames;
+    this.modelFullNames = modelFullNames;
+
+    int models = modelIds.size();
+    this.fieldOffsets = new int[models + 1];
+    for (int model = 0; model < models; model++) {
+      fieldOffsets[model + 1] = fieldOffsets[model] + fieldsByModel.get(model).size();
+    }
+    this.fieldNames = new String[fieldOffsets[models]];
+    for (int model = 0; model < models; model++) {
+      Map<String, Integer> index = new HashMap<>();
+      List<String> fields = fieldsByModel.get(model);
+      for (int i = 0; i < fields.size(); i++) {
+        fieldNames[fieldOffsets[model] + i] = fields.get(i);
+        index.put(fields.get(i), fieldOffsets[model] + i);
+      }
+      fieldIndexes.add(index);
+    }
+
+    int roles = roleIds.size();
+    this.desiredPresent = bitSets(roles);
+    this.currentPresent = bitSets(roles);
+    this.desiredRules = bitSets(roles);
+    this.currentRules = bitSets(roles);
+  }
+
+  public void setDesiredGrant(int role, int model) {
+    desiredPresent[role].set(model);
+  }
+
+  public void setCurrentGrant(int role, int model) {
+    currentPresent[role].set(model);
+  }
+
+  public void setDesiredRule(int role, int model, String field) {
+    Integer bit = fieldIndexes.get(model).get(field);
+    if (bit != null) {
+      desiredRules[role].set(bit);
+    }
+  }
+
+  public void setCurrentRule(int role, int model, String field) {
+    Integer bit = fieldIndexes.get(model).get(field);
+    if (bit != null) {
+      currentRules[role].set(bit);
+    }
+  }
+
+  public void addRuleDelete(int role, int model, String field, Long ruleId) {
+    ruleDeletes.add(new RuleDelete(role, model, field, ruleId));
+  }
+
+  public void forEachPermissionInsert(CellConsumer consumer) {
+    forEachBit(desiredPresent, currentPresent, consumer);
+  }
+
+  public void forEachRuleInsert(RuleConsumer consumer) {
+    forEachRule(desiredRules, currentRules, consumer);
+  }
+
+  public void forEachRuleDelete(RuleConsumer consumer) {
+    ruleDeletes.forEach(delete -> consumer.accept(delete.role, delete.model, delete.field));
+  }
+
+  public List<Long> getRuleDeleteIds() {
+    List<Long> ids = new ArrayList<>(ruleDeletes.size());
+    ruleDeletes.forEach(delete -> ids.add(delete.ruleId));
+    return ids;
+  }
+
+  public int getRoleCount() {
+    return roleIds.size();
+  }
+
+  public int getModelCount() {
+    return modelIds.size();
+  }
+
+  public Long getRoleId(int role) {
+    return roleIds.get(role);
+  }
+
+  public String getRoleName(int role) {
+    return roleNames.get(role);
+  }
+
+  public Long getModelId(int model) {
+    return modelIds.get(model);
+  }
+
+  public String getModelName(int model) {
+    return modelNames.get(model);
+  }
+
+  public String getModelFullName(int model) {
+    return modelFullNames.get(model);
+  }
+
+  public String getPermissionName(int role, int model) {
+    return roleNames.get(role) + "." + modelNames.get(model);
+  }
+
+  /** Number of operations of each kind, without writing anything. */
+  public Map<String, Integer> getStatistics() {
+    int[] counts = new int[2];
+    forEachPermissionInsert((role, model) -> counts[0]++);
+    forEachRuleInsert((role, model, field) -> counts[1]++);
+
+    Map<String, Integer> statistics = new LinkedHashMap<>();
+    statistics.put("permissionInserts", counts[0]);
+    statistics.put("ruleInserts", counts[1]);
+    statistics.put("ruleDeletes", ruleDeletes.size());
+    return Collections.unmodifiableMap(statistics);
+  }
+
+  public String getReport() {
+    Map<String, Integer> statistics = getStatistics();
+    return String.format(
+        "%d roles x %d models: %d permissions to create, %d field rules to create, %d generated"
+            + " field rules to delete (fields no longer generated or duplicates)",
+        getRoleCount(),
+        getModelCount(),
+        statistics.get("permissionInserts"),
+        statistics.get("ruleInserts"),
+        statistics.get("ruleDeletes"));
+  }
+
+  /**
+   * Identifies the operations of the plan, two plans with the same fingerprint write the same
+   * permissions and rules.
+   */
+  public String getFingerprint() {
+    Hasher hasher = Hashing.sha256().newHasher();
+    forEachPermissionInsert(
+        (role, model) ->
+            hasher.putChar('P').putLong(roleIds.get(role)).putLong(modelIds.get(model)));
+    forEachRuleInsert(
+        (role, model, field) ->
+            hasher
+                .putChar('R')
+                .putLong(roleIds.get(role))
+                .putLong(modelIds.get(model))
+                .putInt(field.length())
+                .putString(field, StandardCharsets.UTF_8));
+    ruleDeletes.forEach(delete -> hasher.putChar('D').putLong(delete.ruleId));
+    return hasher.hash().toString();
+  }
+
+  private void forEachBit(BitSet[] included, BitSet[] excluded, CellConsumer consumer) {
+    for (int role = 0; role < roleIds.size(); role++) {
+      BitSet bits = (BitSet) included[role].clone();
+      bits.andNot(excluded[role]);
+      for (int model = bits.nextSetBit(0); model >= 0; model = bits.nextSetBit(model + 1)) {
+        consumer.accept(role, model);
+      }
+    }
+  }
+
+  private void forEachRule(BitSet[] included, BitSet[] excluded, RuleConsumer consumer) {
+    for (int role = 0; role < roleIds.size(); role++) {
+      BitSet bits = (BitSet) included[role].clone();
+      bits.andNot(excluded[role]);
+      int model = 0;
+      for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+        while (bit >= fieldOffsets[model + 1]) {
+          model++;
+        }
+        consumer.accept(role, model, fieldNames[bit]);
+      }
+    }
+  }
+
+  private static BitSet[] bitSets(int size) {
+    BitSet[] bitSets = new BitSet[size];
+    for (int i = 0; i < size; i++) {
+      bitSets[i] = new BitSet();
+    }
+    return bitSets;
+  }
+
+  private static class RuleDelete {
+    private final int role;
+    private final int model;
+    private final String field;
+    private final Long ruleId;
+
+    private RuleDelete(int role, int model, String field, Long ruleId) {
+      this.role = role;
+      this.model = model;
+      this.field = field;
+      this.ruleId = ruleId;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.axelor.script.service;
+
+import com.axelor.studio.db.AppScript;
+import java.util.Map;
+
+public interface PermissionPlanService {
+
+  /**
+   * Builds the desired permission state of every role for the models of the app and the
+   * generatable fields, and loads the current state next to it. Nothing is written.
+   *
+   * <p>Missing permissions and rules are planned, existing ones keep their grants. Generated rules
+   * are planned for deletion where field generation deletes them: fields no longer generated and
+   * duplicate rules of a field.
+   *
+   * @throws IllegalStateException if field rules are generated as shared permissions
+   */
+  PermissionPlan plan(AppScript appScript);
+
+  /**
+   * Writes the operations of the plan previewed with the given fingerprint. The plan is built
+   * again in the same transaction and rejected when it no longer matches the preview.
+   *
+   * @return the number of operations of each kind
+   * @throws IllegalStateException if the permissions changed since the preview
+   */
+  Map<String, Integer> apply(AppScript appScript, String fingerprint);
+}
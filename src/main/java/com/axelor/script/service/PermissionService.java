@@ -1,12 +1,31 @@
 package com.axelor.script.service;
 
+import com.axelor.auth.db.Role;
 import com.axelor.meta.db.MetaModel;
 import java.util.List;
+import java.util.Map;
 
 public interface PermissionService {
-  void generateMetaPermissions(List<MetaModel> model);
+  /**
+   * Generates the missing permissions of the given models for every role.
+   *
+   * @return the counts of this run, keyed by {@link ScriptMetricsService} counter name
+   */
+  Map<String, Integer> generateMetaPermissions(List<MetaModel> model);
+
+  /** Generates the permissions of the given models for the given roles only. */
+  Map<String, Integer> generateMetaPermissions(List<MetaModel> models, List<Role> roles);
 
   void setModelToApp();
 
   void selectAll();
+
+  /**
+   * Returns the {@link PermissionPlan} flags granted to the role on the model by its unconditional
+   * permissions. Lookups are served from a cache dropped whenever the role changes.
+   */
+  int getModelGrants(Long roleId, String model);
+
+  /** Returns the read, write and export flags granted to the role on the field of the model. */
+  int getFieldGrants(Long roleId, String model, String field);
 }
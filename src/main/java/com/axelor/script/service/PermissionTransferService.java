@@ -0,0 +1,27 @@
+package com.axelor.script.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Moves the generated permission set of the roles between environments, so that it is generated
+ * once and loaded everywhere else.
+ */
+public interface PermissionTransferService {
+
+  /**
+   * Streams the permissions, meta permissions and meta permission rules assigned to roles, and the
+   * role assignments, as JSON. Rows are read page by page, memory use does not grow with the set.
+   */
+  void exportPermissions(OutputStream out) throws IOException;
+
+  /**
+   * Loads a file written by {@link #exportPermissions(OutputStream)} in batches, updating the rows
+   * with the same name and creating the missing ones, roles included.
+   *
+   * @return the number of rows of each kind that were created or updated
+   */
+  Map<String, Integer> importPermissions(InputStream in) throws IOException;
+}
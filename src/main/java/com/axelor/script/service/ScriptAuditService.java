@@ -0,0 +1,17 @@
+package com.axelor.script.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface ScriptAuditService {
+
+  /**
+   * Records one tracking message on the script app summarizing a bulk operation, in place of the
+   * per-row tracking messages that bulk statements do not produce.
+   *
+   * @param title the operation name
+   * @param counts the counters of the run, in display order
+   * @param modelIds the ids of the affected models, recorded as their range and a bounded sample
+   */
+  void logSummary(String title, Map<String, ? extends Number> counts, Collection<Long> modelIds);
+}
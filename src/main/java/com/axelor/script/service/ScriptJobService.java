@@ -0,0 +1,29 @@
+package com.axelor.script.service;
+
+import com.axelor.studio.db.AppScript;
+import java.util.function.BooleanSupplier;
+
+public interface ScriptJobService {
+
+  /**
+   * Starts a generation job in the background. A job that failed before reaching the end resumes
+   * from its last committed chunk. Only one node of the cluster runs a job at a time, it holds the
+   * {@link ScriptLockService#GENERATION_LOCK} lease and publishes its progress on the AppScript.
+   *
+   * @param appScript the configuration holding the job state
+   * @param jobType one of the {@code AppScriptRepository.JOB_TYPE_*} values
+   * @return false when another node is running a job, its progress is shown instead
+   */
+  boolean start(AppScript appScript, String jobType);
+
+  /**
+   * Runs a job in the calling thread and unit of work, checking the condition before each chunk.
+   * A job stopped by the condition is paused and resumes from its last chunk on the next call.
+   *
+   * @return the final {@code AppScriptRepository.JOB_STATUS_*} of the job, {@code
+   *     JOB_STATUS_QUEUED} when it could not start because another job is running
+   */
+  int runWhile(AppScript appScript, String jobType, BooleanSupplier keepRunning);
+
+  boolean isRunning();
+}
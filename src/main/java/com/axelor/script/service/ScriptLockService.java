@@ -0,0 +1,34 @@
+package com.axelor.script.service;
+
+/**
+ * Database backed lease locks shared by all the nodes using the same database. A lease is held by
+ * one node until it is released or expires, the holder renews it while it works.
+ */
+public interface ScriptLockService {
+
+  String GENERATION_LOCK = "generation";
+
+  /** Identifies this node as a lock owner. */
+  String getNodeId();
+
+  /**
+   * Takes the lease in its own transaction when it is free, expired or already held by this node.
+   * Must be called outside of any transaction, as {@link #release}.
+   *
+   * @return whether this node now holds the lease
+   */
+  boolean acquire(String name);
+
+  /**
+   * Extends the lease held by this node, in the current transaction if any. A chunk of work that
+   * renews its lease in its own transaction is never committed by a node that lost the lease.
+   *
+   * @return false when the lease expired and another node took it
+   */
+  boolean renew(String name);
+
+  void release(String name);
+
+  /** @return the node holding the lease, or null when it is free or expired */
+  String getOwner(String name);
+}
@@ -0,0 +1,40 @@
+package com.axelor.script.service;
+
+import java.util.Map;
+
+/**
+ * Counters and timers of the script actions, exposed through JMX and on the AppScript form.
+ * Timer values are recorded in nanoseconds.
+ */
+public interface ScriptMetricsService {
+
+  String MODELS_SCANNED = "models.scanned";
+  String PERMISSIONS_CREATED = "permissions.created";
+  String PERMISSIONS_SKIPPED = "permissions.skipped";
+  String META_PERMISSIONS_CREATED = "metaPermissions.created";
+  String RULES_INSERTED = "rules.inserted";
+  String RULES_DELETED = "rules.deleted";
+  String DB_ROUND_TRIPS = "db.roundTrips";
+  String TRANSLATION_CALLS = "translation.calls";
+  String TRANSLATION_CACHE_HITS = "translation.cacheHits";
+  String PERMISSION_CACHE_HITS = "permission.cacheHits";
+  String PERMISSION_CACHE_MISSES = "permission.cacheMisses";
+
+  String PERMISSION_GENERATION_TIME = "permission.generation";
+  String RULE_GENERATION_TIME = "rule.generation";
+  String TRANSLATION_BATCH_TIME = "translation.batch";
+  String PROVIDER_LATENCY = "translation.provider";
+
+  void increment(String counter, long delta);
+
+  void recordTime(String timer, long nanos);
+
+  Map<String, Long> getCounters();
+
+  /** Count, mean, percentiles and maximum of each timer, in milliseconds. */
+  Map<String, Map<String, Double>> getTimers();
+
+  String getSummary();
+
+  void reset();
+}
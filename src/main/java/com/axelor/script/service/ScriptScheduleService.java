@@ -0,0 +1,22 @@
+package com.axelor.script.service;
+
+import com.axelor.studio.db.AppScript;
+import java.time.LocalTime;
+
+/**
+ * Queues the heavy script jobs for the off-peak window of the AppScript, from {@code chatLimit}
+ * to {@code offPeakEnd}. The window may span midnight.
+ */
+public interface ScriptScheduleService {
+
+  /** Adds the job type at the end of the queue, unless it is already queued. */
+  void enqueue(AppScript appScript, String jobType);
+
+  boolean isOffPeak(AppScript appScript, LocalTime time);
+
+  /**
+   * Runs the queued jobs in order while the window is open. A job still running when the window
+   * closes is paused at its next chunk and stays first in the queue.
+   */
+  void runQueue();
+}
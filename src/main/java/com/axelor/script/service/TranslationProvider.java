@@ -0,0 +1,26 @@
+package com.axelor.script.service;
+
+import java.io.IOException;
+
+/**
+ * Backend used by {@link DictionaryService} to translate texts, selected with the {@code
+ * script.translation.provider} setting.
+ */
+public interface TranslationProvider {
+
+  /**
+   * @return the translated text, {@code null} or empty when the provider has no translation
+   * @throws IOException when the provider could not be reached
+   */
+  String translate(String from, String to, String text) throws IOException;
+
+  /** Whether newline-separated segments sent in one request come back as as many lines. */
+  default boolean supportsPacking() {
+    return false;
+  }
+
+  /** Whether requests must respect the configured rate limit. */
+  default boolean isRateLimited() {
+    return true;
+  }
+}
@@ -0,0 +1,58 @@
+package com.axelor.script.service;
+
+/** Counters of a translation run, used to measure how many provider calls were avoided. */
+public class TranslationReport {
+
+  private int pendingRows;
+  private int uniqueTexts;
+  private int translatedRows;
+  private int savedCalls;
+  private boolean paused;
+
+  /**
+   * @param pendingRows the untranslated rows of the page and those of later pages filled with
+   *     the same translations
+   * @param uniqueTexts the texts sent to the provider
+   * @param translatedRows the rows that received a translation
+   * @param savedCalls the rows translated by the call of another row, counted per successful text
+   */
+  public void add(int pendingRows, int uniqueTexts, int translatedRows, int savedCalls) {
+    this.pendingRows += pendingRows;
+    this.uniqueTexts += uniqueTexts;
+    this.translatedRows += translatedRows;
+    this.savedCalls += savedCalls;
+  }
+
+  public int getPendingRows() {
+    return pendingRows;
+  }
+
+  public int getUniqueTexts() {
+    return uniqueTexts;
+  }
+
+  public int getTranslatedRows() {
+    return translatedRows;
+  }
+
+  /** Whether the run stopped before the last page, it continues from its checkpoint. */
+  public boolean isPaused() {
+    return paused;
+  }
+
+  public void setPaused(boolean paused) {
+    this.paused = paused;
+  }
+
+  /** Rows that shared their language and key with another row and needed no own request. */
+  public int getSavedCalls() {
+    return savedCalls;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%d rows translated from %d unique texts (%d pending rows, %d provider calls saved)%s",
+        translatedRows, uniqueTexts, pendingRows, getSavedCalls(), paused ? ", paused" : "");
+  }
+}
@@ -0,0 +1,22 @@
+package com.axelor.script.service;
+
+import java.util.function.BooleanSupplier;
+
+public interface TranslationService {
+
+  /**
+   * Translates every MetaTranslation without message, walking them by id in pages committed one
+   * at a time. An interrupted run continues after the last committed page.
+   *
+   * <p>Rows sharing the same language and key are translated once and updated together.
+   */
+  default TranslationReport translateMissing() {
+    return translateMissing(() -> true);
+  }
+
+  /**
+   * Same as {@link #translateMissing()}, checking the condition before each page. A run stopped
+   * by the condition keeps its checkpoint and reports itself as paused.
+   */
+  TranslationReport translateMissing(BooleanSupplier keepRunning);
+}
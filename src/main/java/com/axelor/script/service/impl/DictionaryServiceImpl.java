@@ -1,76 +1,208 @@
 package com.axelor.script.service.impl;
 
+import com.axelor.app.AppSettings;
 import com.axelor.script.service.DictionaryService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
+import com.axelor.script.service.ScriptMetricsService;
+import com.axelor.script.service.TranslationProvider;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+@Singleton
 public class DictionaryServiceImpl implements DictionaryService {
 
-  private static final String USER_AGENT = "Mozilla/5.0";
-  private static final String TRANSLATE_API_URL =
-      "https://translate.googleapis.com/translate_a/single";
-  private final ObjectMapper objectMapper = new ObjectMapper();
+  private static final Logger logger = LoggerFactory.getLogger(DictionaryServiceImpl.class);
+
+  private static final String CONCURRENCY_KEY = "script.translation.concurrency";
+  private static final String RATE_LIMIT_KEY = "script.translation.requests-per-second";
+  private static final String BATCH_SIZE_KEY = "script.translation.batch-size";
+  private static final String BATCH_CHARS_KEY = "script.translation.batch-chars";
+
+  /** Separates the segments packed into a single request, the provider keeps line breaks. */
+  private static final String SEGMENT_SEPARATOR = "\n";
+
+  private final TranslationProvider translationProvider;
+  private final TranslationMemory translationMemory;
+  private final ScriptMetricsService metricsService;
+
+  private final int batchSize;
+  private final int batchChars;
+  private final RateLimiter rateLimiter;
+  private final ExecutorService executor;
+
+  @Inject
+  public DictionaryServiceImpl(
+      TranslationProvider translationProvider,
+      TranslationMemory translationMemory,
+      ScriptMetricsService metricsService) {
+    this.translationProvider = translationProvider;
+    this.translationMemory = translationMemory;
+    this.metricsService = metricsService;
+
+    AppSettings settings = AppSettings.get();
+    int concurrency = Math.max(1, settings.getInt(CONCURRENCY_KEY, 4));
+    this.batchSize = Math.max(1, settings.getInt(BATCH_SIZE_KEY, 20));
+    this.batchChars = Math.max(1, settings.getInt(BATCH_CHARS_KEY, 1500));
+    this.rateLimiter = RateLimiter.create(Math.max(1, settings.getInt(RATE_LIMIT_KEY, 5)));
+    this.executor =
+        Executors.newFixedThreadPool(
+            concurrency,
+            runnable -> {
+              Thread thread = new Thread(runnable, "axelor-script-translation");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
 
   @Override
   public String getTranslation(String from, String to, String request) {
-    try {
-      String url = buildUrl(from, to, request);
-      HttpURLConnection connection = setupConnection(url);
+    String translated = translationMemory.get(from, to, request);
+    if (translated != null) {
+      metricsService.increment(ScriptMetricsService.TRANSLATION_CACHE_HITS, 1);
+      return translated;
+    }
 
-      String response = getResponse(connection);
-      String translatedText = parseResponse(response);
+    translated = fetchTranslation(from, to, request);
+    translationMemory.put(from, to, request, translated);
+    return translated;
+  }
 
-      return translatedText;
-    } catch (Exception e) {
-      e.printStackTrace();
+  @Override
+  public Map<String, String> getTranslations(
+      String from, String to, Collection<String> requests) {
+    Map<String, String> translations = new ConcurrentHashMap<>();
+    if (requests == null || requests.isEmpty()) {
+      return translations;
     }
-    return "";
+
+    long start = System.nanoTime();
+    Set<String> misses = new LinkedHashSet<>();
+    for (String request : requests) {
+      String translated = translationMemory.get(from, to, request);
+      if (translated != null) {
+        translations.put(request, translated);
+      } else {
+        misses.add(request);
+      }
+    }
+
+    List<List<String>> batches = pack(misses);
+    CompletableFuture<?>[] futures =
+        batches.stream()
+            .map(
+                batch ->
+                    CompletableFuture.runAsync(
+                        () -> translations.putAll(translateBatch(from, to, batch)), executor))
+            .toArray(CompletableFuture[]::new);
+    CompletableFuture.allOf(futures).join();
+
+    metricsService.increment(
+        ScriptMetricsService.TRANSLATION_CACHE_HITS, requests.size() - misses.size());
+    metricsService.recordTime(
+        ScriptMetricsService.TRANSLATION_BATCH_TIME, System.nanoTime() - start);
+
+    logger.debug(
+        "Translated {} of {} texts from {} to {}, {} from translation memory, {} requests",
+        translations.size(),
+        requests.size(),
+        from,
+        to,
+        requests.size() - misses.size(),
+        batches.size());
+    return translations;
   }
 
-  private String buildUrl(String from, String to, String request) throws Exception {
-    return TRANSLATE_API_URL
-        + "?"
-        + "client=gtx&"
-        + "sl="
-        + from
-        + "&"
-        + "tl="
-        + to
-        + "&"
-        + "dt=t&q="
-        + URLEncoder.encode(request, "UTF-8");
+  @Override
+  public Map<String, Long> getCacheStatistics() {
+    return translationMemory.getStatistics();
   }
 
-  private HttpURLConnection setupConnection(String url) throws Exception {
-    URL obj = new URL(url);
-    HttpURLConnection connection = (HttpURLConnection) obj.openConnection();
-    connection.setRequestProperty("User-Agent", USER_AGENT);
-    return connection;
+  /** Groups texts into batches limited both in number of segments and in total length. */
+  private List<List<String>> pack(Collection<String> texts) {
+    List<List<String>> batches = new ArrayList<>();
+    List<String> batch = new ArrayList<>();
+    int length = 0;
+
+    for (String text : texts) {
+      if (text == null || text.isEmpty()) {
+        continue;
+      }
+      if (!batch.isEmpty() && (batch.size() >= batchSize || length + text.length() > batchChars)) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+        length = 0;
+      }
+      batch.add(text);
+      length += text.length() + SEGMENT_SEPARATOR.length();
+    }
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    return batches;
   }
 
-  private String getResponse(HttpURLConnection connection) throws Exception {
-    StringBuilder response = new StringBuilder();
-    try (BufferedReader in =
-        new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-      String inputLine;
-      while ((inputLine = in.readLine()) != null) {
-        response.append(inputLine);
+  private Map<String, String> translateBatch(String from, String to, List<String> batch) {
+    Map<String, String> translations = new HashMap<>();
+
+    boolean packable =
+        translationProvider.supportsPacking()
+            && batch.stream().noneMatch(text -> text.contains(SEGMENT_SEPARATOR));
+    if (packable && batch.size() > 1) {
+      String translated = fetchTranslation(from, to, String.join(SEGMENT_SEPARATOR, batch));
+      String[] segments = translated.split(SEGMENT_SEPARATOR, -1);
+      if (segments.length == batch.size()) {
+        for (int i = 0; i < segments.length; i++) {
+          putTranslation(translations, batch.get(i), segments[i].trim());
+        }
+        translations.forEach((text, value) -> translationMemory.put(from, to, text, value));
+        return translations;
       }
+      logger.debug(
+          "Packed translation returned {} segments for {} texts, translating one by one",
+          segments.length,
+          batch.size());
+    }
+
+    for (String text : batch) {
+      putTranslation(translations, text, fetchTranslation(from, to, text));
+    }
+    translations.forEach((text, value) -> translationMemory.put(from, to, text, value));
+    return translations;
+  }
+
+  private void putTranslation(Map<String, String> translations, String text, String translated) {
+    if (!Objects.toString(translated, "").isEmpty()) {
+      translations.put(text, translated);
     }
-    return response.toString();
   }
 
-  private String parseResponse(String response) throws Exception {
-    JsonNode jsonNode = objectMapper.readTree(response);
-    if (jsonNode.isArray()) {
-      return jsonNode.get(0).get(0).get(0).asText();
-    } else {
-      return jsonNode.asText();
+  private String fetchTranslation(String from, String to, String request) {
+    try {
+      if (translationProvider.isRateLimited()) {
+        rateLimiter.acquire();
+      }
+      long start = System.nanoTime();
+      String translated = translationProvider.translate(from, to, request);
+      metricsService.increment(ScriptMetricsService.TRANSLATION_CALLS, 1);
+      metricsService.recordTime(ScriptMetricsService.PROVIDER_LATENCY, System.nanoTime() - start);
+      return Objects.toString(translated, "");
+    } catch (Exception e) {
+      logger.error("Translation of '{}' from {} to {} failed", request, from, to, e);
     }
+    return "";
   }
 }
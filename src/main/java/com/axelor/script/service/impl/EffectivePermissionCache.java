@@ -0,0 +1,180 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.app.AppSettings;
+import com.axelor.db.JPA;
+import com.axelor.script.service.EffectivePermissions;
+import com.axelor.script.service.PermissionPlan;
+import com.axelor.script.service.ScriptMetricsService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.engine.spi.SessionImplementor;
+
+/**
+ * Bounded LRU cache of the compiled permissions of each role.
+ *
+ * <p>Entries are dropped once the transaction that changed the role ends, committed or rolled back,
+ * so that no reader keeps the rows it replaced or rows that never existed. A table loaded while an
+ * invalidation happened is returned but not cached, it may predate the change.
+ */
+@Singleton
+public class EffectivePermissionCache {
+
+  private static final String SIZE_KEY = "script.permission.cache.size";
+
+  private final ScriptMetricsService metricsService;
+
+  private final Map<Long, EffectivePermissions> entries;
+  private final AtomicLong invalidations = new AtomicLong();
+
+  /** Session already holding a full invalidation, so bulk saves register only one. */
+  private final ThreadLocal<SessionImplementor> pendingInvalidateAll = new ThreadLocal<>();
+
+  @Inject
+  public EffectivePermissionCache(ScriptMetricsService metricsService) {
+    this.metricsService = metricsService;
+    int capacity = Math.max(1, AppSettings.get().getInt(SIZE_KEY, 1000));
+    this.entries =
+        new LinkedHashMap<Long, EffectivePermissions>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Long, EffectivePermissions> eldest) {
+            return size() > capacity;
+          }
+        };
+  }
+
+  public EffectivePermissions get(Long roleId) {
+    synchronized (entries) {
+      EffectivePermissions permissions = entries.get(roleId);
+      if (permissions != null) {
+        metricsService.increment(ScriptMetricsService.PERMISSION_CACHE_HITS, 1);
+        return permissions;
+      }
+    }
+
+    long invalidationsBefore = invalidations.get();
+    EffectivePermissions permissions = load(roleId);
+    metricsService.increment(ScriptMetricsService.PERMISSION_CACHE_MISSES, 1);
+    synchronized (entries) {
+      if (invalidations.get() == invalidationsBefore) {
+        entries.put(roleId, permissions);
+      }
+    }
+    return permissions;
+  }
+
+  /**
+   * Drops the role once the current transaction ends, right away without transaction. A rollback
+   * invalidates as well: an entry loaded from the uncommitted changes would outlive them.
+   */
+  public void invalidateOnCompletion(Long roleId) {
+    onCompletion(() -> invalidate(roleId));
+  }
+
+  public void invalidateAllOnCompletion() {
+    if (!JPA.em().getTransaction().isActive()) {
+      invalidateAll();
+      return;
+    }
+    SessionImplementor session = JPA.em().unwrap(SessionImplementor.class);
+    if (pendingInvalidateAll.get() == session) {
+      return;
+    }
+    pendingInvalidateAll.set(session);
+    session
+        .getActionQueue()
+        .registerProcess(
+            (success, completed) -> {
+              pendingInvalidateAll.remove();
+              invalidateAll();
+            });
+  }
+
+  public void invalidate(Long roleId) {
+    synchronized (entries) {
+      invalidations.incrementAndGet();
+      entries.remove(roleId);
+    }
+  }
+
+  public void invalidateAll() {
+    synchronized (entries) {
+      invalidations.incrementAndGet();
+      entries.clear();
+    }
+  }
+
+  private void onCompletion(Runnable invalidation) {
+    if (!JPA.em().getTransaction().isActive()) {
+      invalidation.run();
+      return;
+    }
+    JPA.em()
+        .unwrap(SessionImplementor.class)
+        .getActionQueue()
+        .registerProcess(
+            (success, session) -> invalidation.run());
+  }
+
+  private EffectivePermissions load(Long roleId) {
+    Map<String, Integer> modelGrants = new HashMap<>();
+    Map<String, Integer> prefixGrants = new LinkedHashMap<>();
+    List<Object[]> permissions =
+        JPA.em()
+            .createQuery(
+                "SELECT permission.object, permission.canRead, permission.canWrite,"
+                    + " permission.canCreate, permission.canRemove, permission.canExport"
+                    + " FROM Role self JOIN self.permissions permission"
+                    + " WHERE self.id = :roleId AND permission.condition IS NULL",
+                Object[].class)
+            .setParameter("roleId", roleId)
+            .getResultList();
+    for (Object[] row : permissions) {
+      String object = (String) row[0];
+      if (object == null) {
+        continue;
+      }
+      int flags =
+          flag(row[1], PermissionPlan.CAN_READ)
+              | flag(row[2], PermissionPlan.CAN_WRITE)
+              | flag(row[3], PermissionPlan.CAN_CREATE)
+              | flag(row[4], PermissionPlan.CAN_REMOVE)
+              | flag(row[5], PermissionPlan.CAN_EXPORT);
+      if (object.endsWith("*")) {
+        prefixGrants.merge(object.substring(0, object.length() - 1), flags, (a, b) -> a | b);
+      } else {
+        modelGrants.merge(object, flags, (a, b) -> a | b);
+      }
+    }
+
+    Map<String, Map<String, Integer>> fieldGrants = new HashMap<>();
+    List<Object[]> rules =
+        JPA.em()
+            .createQuery(
+                "SELECT metaPermission.object, rule.field, rule.canRead, rule.canWrite,"
+                    + " rule.canExport FROM Role self JOIN self.metaPermissions metaPermission"
+                    + " JOIN metaPermission.rules rule WHERE self.id = :roleId",
+                Object[].class)
+            .setParameter("roleId", roleId)
+            .getResultList();
+    for (Object[] row : rules) {
+      int flags =
+          flag(row[2], PermissionPlan.CAN_READ)
+              | flag(row[3], PermissionPlan.CAN_WRITE)
+              | flag(row[4], PermissionPlan.CAN_EXPORT);
+      fieldGrants
+          .computeIfAbsent((String) row[0], model -> new HashMap<>())
+          .merge((String) row[1], flags, (a, b) -> a | b);
+    }
+
+    return new EffectivePermissions(modelGrants, prefixGrants, fieldGrants);
+  }
+
+  private int flag(Object value, int flag) {
+    return Boolean.TRUE.equals(value) ? flag : 0;
+  }
+}
@@ -1,8 +1,10 @@
 package com.axelor.script.service.impl;
 
+import com.axelor.app.AppSettings;
 import com.axelor.auth.db.Role;
 import com.axelor.auth.db.repo.RoleRepository;
-import com.axelor.meta.db.MetaField;
+import com.axelor.db.JPA;
+import com.axelor.inject.Beans;
 import com.axelor.meta.db.MetaModel;
 import com.axelor.meta.db.MetaPermission;
 import com.axelor.meta.db.MetaPermissionRule;
@@ -10,183 +12,717 @@ import com.axelor.meta.db.repo.MetaModelRepository;
 import com.axelor.meta.db.repo.MetaPermissionRepository;
 import com.axelor.meta.db.repo.MetaPermissionRuleRepository;
 import com.axelor.script.service.FieldService;
+import com.axelor.script.service.ScriptMetricsService;
+import com.google.common.hash.Hashing;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.persist.Transactional;
+import com.google.inject.persist.UnitOfWork;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Singleton
 public class FieldServiceImpl implements FieldService {
   private static final Logger logger = Logger.getLogger(FieldServiceImpl.class.getName());
 
+  private static final String BATCH_SIZE_KEY = "script.permission.batch-size";
+  private static final int DEFAULT_BATCH_SIZE = 50;
+  private static final int IN_CLAUSE_SIZE = 1000;
+  private static final String PARALLELISM_KEY = "script.generation.parallelism";
+  static final String SHARED_PERMISSIONS_KEY = "script.generation.shared-permissions";
+
+  /**
+   * Shared permissions are named after their model and the hash of their rules, the rules of a
+   * shared permission never change, a different rule set gets another permission.
+   */
+  private static final String SHARED_PREFIX = "shared.";
+
+  private static final String META_PERMISSIONS_REMOVED = "metaPermissions.removed";
+
+  /** Role slices per worker, so that a slice of slow roles does not hold up the whole run. */
+  private static final int SLICES_PER_WORKER = 4;
+
   private final MetaModelRepository metaModelRepository;
   private final MetaPermissionRuleRepository metaPermissionRuleRepository;
   private final MetaPermissionRepository metaPermissionRepository;
   private final RoleRepository roleRepository;
+  private final ScriptMetricsService metricsService;
+  private final RoundTripCounter roundTripCounter;
+
+  private final int parallelism;
+  private final ExecutorService executor;
+  private final boolean sharedPermissions;
 
   @Inject
   public FieldServiceImpl(
       MetaModelRepository metaModelRepository,
       MetaPermissionRuleRepository metaPermissionRuleRepository,
       MetaPermissionRepository metaPermissionRepository,
-      RoleRepository roleRepository) {
+      RoleRepository roleRepository,
+      ScriptMetricsService metricsService,
+      RoundTripCounter roundTripCounter) {
     this.metaModelRepository = metaModelRepository;
     this.metaPermissionRuleRepository = metaPermissionRuleRepository;
     this.metaPermissionRepository = metaPermissionRepository;
     this.roleRepository = roleRepository;
+    this.metricsService = metricsService;
+    this.roundTripCounter = roundTripCounter;
+
+    this.parallelism = Math.max(1, AppSettings.get().getInt(PARALLELISM_KEY, 1));
+    this.sharedPermissions = AppSettings.get().getBoolean(SHARED_PERMISSIONS_KEY, false);
+    this.executor =
+        parallelism == 1
+            ? null
+            : Executors.newFixedThreadPool(
+                parallelism,
+                runnable -> {
+                  Thread thread = new Thread(runnable, "axelor-script-generation");
+                  thread.setDaemon(true);
+                  return thread;
+                });
   }
 
   @Override
-  public void generateMetaPermissionRules(List<MetaModel> models) {
+  public Map<String, Integer> generateMetaPermissionRules(List<MetaModel> models) {
+    return generateMetaPermissionRules(models, roleRepository.all().fetch());
+  }
+
+  @Override
+  public Map<String, Integer> generateMetaPermissionRules(
+      List<MetaModel> models, Runnable beforeCommit) {
+    return generate(models, roleRepository.all().fetch(), beforeCommit);
+  }
+
+  @Override
+  public Map<String, Integer> generateMetaPermissionRules(
+      List<MetaModel> models, List<Role> roles) {
+    return generate(models, roles, () -> {});
+  }
+
+  private Map<String, Integer> generate(
+      List<MetaModel> models, List<Role> roles, Runnable beforeCommit) {
     if (models == null) {
       logger.severe("models list is null");
-      return;
+      return Collections.emptyMap();
     }
+    try (RoundTripCounter.Tracking tracking = roundTripCounter.track()) {
+      return generateTracked(models, roles, beforeCommit);
+    }
+  }
+
+  private Map<String, Integer> generateTracked(
+      List<MetaModel> models, List<Role> roles, Runnable beforeCommit) {
     logger.info("Started generating meta permissions.");
 
-    roleRepository
-        .all()
-        .fetch()
-        .forEach(
-            role -> {
-              Set<MetaPermission> metaPermissionsSet = new HashSet<>();
-
-              for (MetaModel metaModel : models) {
-                List<MetaField> metaFields = scriptFindByModel(metaModel);
-                if (metaFields == null || metaFields.isEmpty()) {
-                  continue;
-                }
-
-                boolean hasGeneratableFields = metaFields.stream().anyMatch(MetaField::getGenerate);
-
-                if (hasGeneratableFields) {
-                  MetaPermission metaPermission = generatePermission(role, metaModel);
-                  metaPermissionsSet.add(metaPermission);
-
-                  metaFields.stream()
-                      .filter(MetaField::getGenerate)
-                      .forEach(
-                          metaField -> {
-                            logger.info("Processing field: " + metaField.getName());
-                            processMetaPermission(metaPermission, metaField);
-                          });
-                } else {
-                  logger.info(
-                      "No generatable fields found for MetaModel: "
-                          + metaModel.getFullName()
-                          + ", skipping MetaPermission creation.");
-                }
-              }
-
-              role.setMetaPermissions(metaPermissionsSet);
-              roleRepository.save(role);
-            });
+    long start = System.nanoTime();
+    Set<Long> replacedIds = ConcurrentHashMap.newKeySet();
+    Map<String, Integer> statistics = new ConcurrentHashMap<>();
+    if (sharedPermissions) {
+      // created and brought in line up front, role slices only link them and never write their
+      // rules
+      JPA.runInTransaction(
+          () -> {
+            createSharedPermissions(models, statistics);
+            beforeCommit.run();
+          });
+    }
 
+    boolean inTransaction = JPA.em().getTransaction().isActive();
+    if (executor != null && roles.size() > 1 && !inTransaction) {
+      generateInParallel(models, roles, replacedIds, statistics, beforeCommit);
+    } else {
+      JPA.runInTransaction(
+          () -> {
+            generateForRoles(models, roles, replacedIds, statistics);
+            beforeCommit.run();
+          });
+    }
+    JPA.runInTransaction(
+        () -> {
+          removeUnusedPermissions(models, replacedIds, statistics);
+          beforeCommit.run();
+        });
+
+    count(statistics, ScriptMetricsService.MODELS_SCANNED, models.size());
+    metricsService.recordTime(ScriptMetricsService.RULE_GENERATION_TIME, System.nanoTime() - start);
     logger.info("Finished generating meta permissions.");
+    return new TreeMap<>(statistics);
+  }
+
+  /** Adds to the process-wide counter and to the statistics of the current run. */
+  private void count(Map<String, Integer> statistics, String counter, int delta) {
+    if (delta == 0) {
+      return;
+    }
+    metricsService.increment(counter, delta);
+    statistics.merge(counter, delta, Integer::sum);
   }
 
-  private MetaPermission generatePermission(Role role, MetaModel metaModel) {
-    String permissionName = String.format("%s.%s", role.getName(), metaModel.getName());
-    MetaPermission metaPermission = findOrCreateMetaPermission(metaModel, permissionName);
+  /**
+   * Splits the roles, ordered by id, in contiguous slices handled by the worker pool. Each slice
+   * runs in its own unit of work and transaction. Roles only share the shared permissions, which
+   * exist before the slices start and are only read by them, so slices never write the same rows.
+   * Results are merged in slice order once all of them are done, and the first failing slice, if
+   * any, is reported.
+   */
+  private void generateInParallel(
+      List<MetaModel> models,
+      List<Role> roles,
+      Set<Long> replacedIds,
+      Map<String, Integer> statistics,
+      Runnable beforeCommit) {
+    List<Long> modelIds = models.stream().map(MetaModel::getId).collect(Collectors.toList());
+    List<Long> roleIds = roles.stream().map(Role::getId).sorted().collect(Collectors.toList());
+    int sliceCount = parallelism * SLICES_PER_WORKER;
+    int sliceSize = Math.max(1, (roleIds.size() + sliceCount - 1) / sliceCount);
 
-    initializeMetaPermissionRules(metaPermission, metaModel);
+    List<CompletableFuture<Integer>> slices = new ArrayList<>();
+    for (int from = 0; from < roleIds.size(); from += sliceSize) {
+      List<Long> slice = roleIds.subList(from, Math.min(from + sliceSize, roleIds.size()));
+      slices.add(
+          CompletableFuture.supplyAsync(
+              () -> generateSlice(modelIds, slice, replacedIds, statistics, beforeCommit),
+              executor));
+    }
 
-    return metaPermission;
+    int writes = 0;
+    RuntimeException failure = null;
+    for (int i = 0; i < slices.size(); i++) {
+      try {
+        writes += slices.get(i).join();
+      } catch (CompletionException e) {
+        logger.severe("Role slice " + i + " failed: " + e.getCause());
+        if (failure == null) {
+          failure = new IllegalStateException("Role slice " + i + " failed", e.getCause());
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+
+    logger.info(
+        "Generated rules of "
+            + roleIds.size()
+            + " roles in "
+            + slices.size()
+            + " slices on "
+            + parallelism
+            + " workers, "
+            + writes
+            + " rules changed");
+  }
+
+  private int generateSlice(
+      List<Long> modelIds,
+      List<Long> roleIds,
+      Set<Long> replacedIds,
+      Map<String, Integer> statistics,
+      Runnable beforeCommit) {
+    UnitOfWork unitOfWork = Beans.get(UnitOfWork.class);
+    unitOfWork.begin();
+    try (RoundTripCounter.Tracking tracking = roundTripCounter.track()) {
+      int[] writes = new int[1];
+      JPA.runInTransaction(
+          () -> {
+            List<MetaModel> models =
+                metaModelRepository
+                    .all()
+                    .filter("self.id IN :ids")
+                    .bind("ids", modelIds)
+                    .order("id")
+                    .fetch();
+            List<Role> roles =
+                roleRepository
+                    .all()
+                    .filter("self.id IN :ids")
+                    .bind("ids", roleIds)
+                    .order("id")
+                    .fetch();
+            writes[0] = generateForRoles(models, roles, replacedIds, statistics);
+            beforeCommit.run();
+          });
+      return writes[0];
+    } finally {
+      unitOfWork.end();
+    }
+  }
+
+  /**
+   * @param replacedIds collects the role permissions replaced by a shared one
+   * @param statistics collects the counts of the run
+   * @return the number of inserted and deleted rules
+   */
+  private int generateForRoles(
+      List<MetaModel> models,
+      List<Role> roles,
+      Set<Long> replacedIds,
+      Map<String, Integer> statistics) {
+    int batchSize = AppSettings.get().getInt(BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE);
+    int pendingWrites = 0;
+    int writes = 0;
+
+    Map<Long, Set<String>> fieldNamesByModel = fetchGeneratableFieldNames(models);
+    Map<Long, Set<String>> skippedFieldsByModel = fetchSkippedFieldNames(models);
+    Map<String, MetaPermission> metaPermissionsByName =
+        fetchMetaPermissions(models, roles, fieldNamesByModel);
+    Set<String> modelNames = models.stream().map(MetaModel::getName).collect(Collectors.toSet());
+
+    for (Role role : roles) {
+      Set<MetaPermission> metaPermissionsSet = new HashSet<>();
+      Set<String> permissionNames = new HashSet<>();
+
+      for (MetaModel metaModel : models) {
+        permissionNames.add(getPermissionName(role, metaModel));
+        Set<String> fieldNames =
+            fieldNamesByModel.getOrDefault(metaModel.getId(), Collections.emptySet());
+        if (fieldNames.isEmpty()) {
+          logger.fine(
+              "No generatable fields found for MetaModel: "
+                  + metaModel.getFullName()
+                  + ", skipping MetaPermission creation.");
+          continue;
+        }
+
+        String permissionName = getPermissionName(role, metaModel);
+        MetaPermission rolePermission = metaPermissionsByName.get(permissionName);
+        if (sharedPermissions) {
+          String sharedName = getSharedPermissionName(metaModel, fieldNames);
+          if (rolePermission != null && isCustomized(rolePermission)) {
+            // the role diverged from the generated rules, it keeps its own copy
+            metaPermissionsSet.add(rolePermission);
+            continue;
+          }
+          if (rolePermission != null) {
+            replacedIds.add(rolePermission.getId());
+          }
+          permissionName = sharedName;
+        }
+
+        MetaPermission metaPermission =
+            findOrCreateMetaPermission(
+                metaPermissionsByName, metaModel, permissionName, statistics);
+        metaPermissionsSet.add(metaPermission);
+        if (sharedPermissions) {
+          continue;
+        }
+
+        int ruleWrites =
+            applyMetaPermissionRules(
+                metaPermission,
+                fieldNames,
+                skippedFieldsByModel.getOrDefault(metaModel.getId(), Collections.emptySet()),
+                statistics);
+        pendingWrites += ruleWrites;
+        writes += ruleWrites;
+        if (pendingWrites >= batchSize) {
+          JPA.flush();
+          pendingWrites = 0;
+        }
+      }
+
+      assignMetaPermissions(
+          role,
+          name -> permissionNames.contains(name) || isSharedPermissionOf(name, modelNames),
+          metaPermissionsSet);
+    }
+    return writes;
+  }
+
+  @Override
+  @Transactional
+  public MetaPermission detachSharedPermission(Role role, MetaPermission metaPermission) {
+    if (!metaPermission.getName().startsWith(SHARED_PREFIX)) {
+      return metaPermission;
+    }
+    String sharedName = metaPermission.getName();
+    String modelName =
+        sharedName.substring(SHARED_PREFIX.length(), sharedName.lastIndexOf('.'));
+
+    String name = String.format("%s.%s", role.getName(), modelName);
+
+    // the role permission replaced by the shared one is kept while a group still uses it, it is
+    // reused and its rules replaced
+    MetaPermission copy =
+        metaPermissionRepository.all().filter("self.name = :name").bind("name", name).fetchOne();
+    if (copy == null) {
+      copy = new MetaPermission();
+      copy.setName(name);
+      copy.setRules(new ArrayList<>());
+      metricsService.increment(ScriptMetricsService.META_PERMISSIONS_CREATED, 1);
+    } else if (copy.getRules() == null) {
+      copy.setRules(new ArrayList<>());
+    } else {
+      copy.getRules().clear();
+    }
+    copy.setObject(metaPermission.getObject());
+    for (MetaPermissionRule rule : metaPermission.getRules()) {
+      MetaPermissionRule ruleCopy = metaPermissionRuleRepository.copy(rule, false);
+      ruleCopy.setMetaPermission(copy);
+      copy.getRules().add(ruleCopy);
+    }
+    copy = metaPermissionRepository.save(copy);
+
+    role.getMetaPermissions().remove(metaPermission);
+    role.getMetaPermissions().add(copy);
+    roleRepository.save(role);
+    return copy;
+  }
+
+  /**
+   * Creates the missing shared permission of each model and brings the rules of every shared
+   * permission in line, before the role slices run.
+   */
+  private void createSharedPermissions(List<MetaModel> models, Map<String, Integer> statistics) {
+    Map<Long, Set<String>> fieldNamesByModel = fetchGeneratableFieldNames(models);
+    Map<Long, Set<String>> skippedFieldsByModel = fetchSkippedFieldNames(models);
+    List<String> names = new ArrayList<>();
+    for (MetaModel metaModel : models) {
+      Set<String> fieldNames = fieldNamesByModel.get(metaModel.getId());
+      if (fieldNames != null) {
+        names.add(getSharedPermissionName(metaModel, fieldNames));
+      }
+    }
+
+    Map<String, MetaPermission> metaPermissionsByName = fetchMetaPermissionsByName(names);
+    for (MetaModel metaModel : models) {
+      Set<String> fieldNames = fieldNamesByModel.get(metaModel.getId());
+      if (fieldNames == null) {
+        continue;
+      }
+      MetaPermission metaPermission =
+          findOrCreateMetaPermission(
+              metaPermissionsByName,
+              metaModel,
+              getSharedPermissionName(metaModel, fieldNames),
+              statistics);
+      applyMetaPermissionRules(
+          metaPermission,
+          fieldNames,
+          skippedFieldsByModel.getOrDefault(metaModel.getId(), Collections.emptySet()),
+          statistics);
+    }
+  }
+
+  /**
+   * Removes the role permissions folded into a shared one and the shared permissions of the given
+   * models that no role or group uses anymore, their rule set changed.
+   */
+  private void removeUnusedPermissions(
+      List<MetaModel> models, Set<Long> replacedIds, Map<String, Integer> statistics) {
+    String unused =
+        " AND NOT EXISTS (SELECT role.id FROM Role role JOIN role.metaPermissions assigned"
+            + " WHERE assigned = self)"
+            + " AND NOT EXISTS (SELECT grp.id FROM Group grp JOIN grp.metaPermissions assigned"
+            + " WHERE assigned = self)";
+    List<MetaPermission> removed = new ArrayList<>();
+
+    List<Long> ids = new ArrayList<>(replacedIds);
+    for (int from = 0; from < ids.size(); from += IN_CLAUSE_SIZE) {
+      removed.addAll(
+          metaPermissionRepository
+              .all()
+              .filter("self.id IN :ids" + unused)
+              .bind("ids", ids.subList(from, Math.min(from + IN_CLAUSE_SIZE, ids.size())))
+              .fetch());
+    }
+    List<String> objects =
+        models.stream().map(MetaModel::getFullName).distinct().collect(Collectors.toList());
+    for (int from = 0; from < objects.size(); from += IN_CLAUSE_SIZE) {
+      removed.addAll(
+          metaPermissionRepository
+              .all()
+              .filter("self.name LIKE :prefix AND self.object IN :objects" + unused)
+              .bind("prefix", SHARED_PREFIX + "%")
+              .bind(
+                  "objects",
+                  objects.subList(from, Math.min(from + IN_CLAUSE_SIZE, objects.size())))
+              .fetch());
+    }
+
+    removed.forEach(metaPermissionRepository::remove);
+    count(statistics, META_PERMISSIONS_REMOVED, removed.size());
+    if (!removed.isEmpty()) {
+      logger.info("Removed " + removed.size() + " meta permissions no longer assigned");
+    }
   }
 
-  private MetaPermission findOrCreateMetaPermission(MetaModel metaModel, String permissionName) {
-    MetaPermission metaPermission =
-        metaPermissionRepository
-            .all()
-            .filter("self.name = :name")
-            .bind("name", permissionName)
-            .fetchOne();
-    MetaModel model =
-        metaModelRepository.all().filter("self.id = :id").bind("id", metaModel.getId()).fetchOne();
+  private String getSharedPermissionName(MetaModel metaModel, Set<String> fieldNames) {
+    return getSharedPermissionName(
+        metaModel.getName(),
+        fieldNames.stream().map(field -> ruleSignature(field, true, true, true, null, null)));
+  }
+
+  /**
+   * A role permission with any rule other than the generated one was edited for that role. One
+   * that only misses or has extra generated rules is outdated and is replaced by the shared one.
+   */
+  private boolean isCustomized(MetaPermission metaPermission) {
+    if (metaPermission.getRules() == null) {
+      return false;
+    }
+    return metaPermission.getRules().stream().anyMatch(rule -> !isGeneratedRule(rule));
+  }
+
+  /** Whether the rule still grants what generation gives, it was not edited by hand. */
+  private boolean isGeneratedRule(MetaPermissionRule rule) {
+    return ruleSignature(
+            rule.getField(),
+            rule.getCanRead(),
+            rule.getCanWrite(),
+            rule.getCanExport(),
+            rule.getReadonlyIf(),
+            rule.getHideIf())
+        .equals(ruleSignature(rule.getField(), true, true, true, null, null));
+  }
+
+  /** Names the shared permission of a model after the hash of its sorted rule signatures. */
+  private String getSharedPermissionName(
+      String modelName, Stream<String> signatures) {
+    String ruleSet = signatures.sorted().collect(Collectors.joining("\n"));
+    String hash =
+        Hashing.sha256().hashString(ruleSet, StandardCharsets.UTF_8).toString().substring(0, 16);
+    return SHARED_PREFIX + modelName + "." + hash;
+  }
+
+  private String ruleSignature(
+      String field,
+      Boolean canRead,
+      Boolean canWrite,
+      Boolean canExport,
+      String readonlyIf,
+      String hideIf) {
+    return String.join(
+        "|",
+        field,
+        String.valueOf(Boolean.TRUE.equals(canRead)),
+        String.valueOf(Boolean.TRUE.equals(canWrite)),
+        String.valueOf(Boolean.TRUE.equals(canExport)),
+        Objects.toString(readonlyIf, ""),
+        Objects.toString(hideIf, ""));
+  }
+
+  private boolean isSharedPermissionOf(String name, Set<String> modelNames) {
+    return name.startsWith(SHARED_PREFIX)
+        && name.lastIndexOf('.') > SHARED_PREFIX.length()
+        && modelNames.contains(name.substring(SHARED_PREFIX.length(), name.lastIndexOf('.')));
+  }
+
+  private String getPermissionName(Role role, MetaModel metaModel) {
+    return String.format("%s.%s", role.getName(), metaModel.getName());
+  }
+
+  /**
+   * Loads the names of the generatable fields of all the given models at once, keyed by model id,
+   * instead of initializing each model's field collection.
+   */
+  private Map<Long, Set<String>> fetchGeneratableFieldNames(List<MetaModel> models) {
+    return fetchFieldNames(models, "self.generate = true");
+  }
+
+  /** Loads the names of the fields generation skips, their generated rules are removed. */
+  private Map<Long, Set<String>> fetchSkippedFieldNames(List<MetaModel> models) {
+    return fetchFieldNames(models, "(self.generate IS NULL OR self.generate = false)");
+  }
+
+  private Map<Long, Set<String>> fetchFieldNames(List<MetaModel> models, String condition) {
+    if (models.stream().anyMatch(Objects::isNull)) {
+      logger.severe("metaModel cannot be null");
+      throw new IllegalArgumentException("metaModel cannot be null");
+    }
+    List<Long> modelIds = models.stream().map(MetaModel::getId).collect(Collectors.toList());
+
+    Map<Long, Set<String>> fieldNamesByModel = new HashMap<>();
+    for (int from = 0; from < modelIds.size(); from += IN_CLAUSE_SIZE) {
+      List<Object[]> rows =
+          JPA.em()
+              .createQuery(
+                  "SELECT self.metaModel.id, self.name FROM MetaField self"
+                      + " WHERE self.metaModel.id IN :ids AND "
+                      + condition
+                      + " ORDER BY self.id",
+                  Object[].class)
+              .setParameter(
+                  "ids", modelIds.subList(from, Math.min(from + IN_CLAUSE_SIZE, modelIds.size())))
+              .getResultList();
+      for (Object[] row : rows) {
+        fieldNamesByModel
+            .computeIfAbsent((Long) row[0], id -> new LinkedHashSet<>())
+            .add((String) row[1]);
+      }
+    }
+    return fieldNamesByModel;
+  }
+
+  /**
+   * Loads the existing permissions of the given roles and models with generatable fields, with
+   * their rules, so that the generation loop runs without further lookups. Only the names of the
+   * given roles are queried, so a role slice never loads the permissions of the other slices.
+   */
+  private Map<String, MetaPermission> fetchMetaPermissions(
+      List<MetaModel> models, List<Role> roles, Map<Long, Set<String>> fieldNamesByModel) {
+    Set<String> names = new LinkedHashSet<>();
+    for (MetaModel metaModel : models) {
+      Set<String> fieldNames = fieldNamesByModel.get(metaModel.getId());
+      if (fieldNames == null) {
+        continue;
+      }
+      for (Role role : roles) {
+        names.add(getPermissionName(role, metaModel));
+      }
+      if (sharedPermissions) {
+        names.add(getSharedPermissionName(metaModel, fieldNames));
+      }
+    }
+    return fetchMetaPermissionsByName(new ArrayList<>(names));
+  }
+
+  private Map<String, MetaPermission> fetchMetaPermissionsByName(List<String> names) {
+    Map<String, MetaPermission> metaPermissionsByName = new HashMap<>();
+    for (int from = 0; from < names.size(); from += IN_CLAUSE_SIZE) {
+      List<MetaPermission> metaPermissions =
+          JPA.em()
+              .createQuery(
+                  "SELECT DISTINCT self FROM MetaPermission self LEFT JOIN FETCH self.rules"
+                      + " WHERE self.name IN :names",
+                  MetaPermission.class)
+              .setParameter(
+                  "names", names.subList(from, Math.min(from + IN_CLAUSE_SIZE, names.size())))
+              .getResultList();
+      for (MetaPermission metaPermission : metaPermissions) {
+        metaPermissionsByName.putIfAbsent(metaPermission.getName(), metaPermission);
+      }
+    }
+    return metaPermissionsByName;
+  }
+
+  /**
+   * Replaces the role's generated permissions for the given models only, so that models can be
+   * processed in several chunks without dropping the permissions of the previous ones.
+   */
+  private void assignMetaPermissions(
+      Role role, Predicate<String> generatedName, Set<MetaPermission> metaPermissions) {
+    if (role.getMetaPermissions() == null) {
+      role.setMetaPermissions(new HashSet<>());
+    }
+    role.getMetaPermissions().removeIf(permission -> generatedName.test(permission.getName()));
+    role.getMetaPermissions().addAll(metaPermissions);
+    roleRepository.save(role);
+  }
+
+  private MetaPermission findOrCreateMetaPermission(
+      Map<String, MetaPermission> metaPermissionsByName,
+      MetaModel metaModel,
+      String permissionName,
+      Map<String, Integer> statistics) {
+    MetaPermission metaPermission = metaPermissionsByName.get(permissionName);
 
     if (metaPermission == null) {
       metaPermission = new MetaPermission();
       metaPermission.setName(permissionName);
-      metaPermission.setObject(model.getFullName());
+      metaPermission.setObject(metaModel.getFullName());
       metaPermission = metaPermissionRepository.save(metaPermission);
-      logger.info(
+      metaPermissionsByName.put(permissionName, metaPermission);
+      count(statistics, ScriptMetricsService.META_PERMISSIONS_CREATED, 1);
+      logger.fine(
           "Created new MetaPermission: "
               + metaPermission.getName()
               + " for MetaModel: "
-              + model.getFullName());
+              + metaModel.getFullName());
     }
 
     return metaPermission;
   }
 
-  private void initializeMetaPermissionRules(MetaPermission metaPermission, MetaModel metaModel) {
+  /**
+   * Brings the rules of the given permission in line with the generatable fields: missing rules
+   * are added, the untouched rules of fields no longer generated are removed and duplicated rules
+   * of a field are merged into one, keeping the edited one if any. Rules added by hand for other
+   * fields are left as they are, and the permission is saved only when something changed.
+   *
+   * @return the number of inserted and deleted rules
+   */
+  private int applyMetaPermissionRules(
+      MetaPermission metaPermission,
+      Set<String> fieldNames,
+      Set<String> skippedFieldNames,
+      Map<String, Integer> statistics) {
     if (metaPermission.getRules() == null) {
       metaPermission.setRules(new ArrayList<>());
     }
 
-    if (metaPermission.getRules().isEmpty()) {
-      List<MetaField> metaFields = scriptFindByModel(metaModel);
-      metaFields.stream()
-          .filter(MetaField::getGenerate)
-          .forEach(
-              metaField -> {
-                MetaPermissionRule rule = buildMetaPermissionRule(metaField, metaPermission);
-                metaPermission.getRules().add(rule);
-                metaPermissionRuleRepository.save(rule);
-              });
-      metaPermissionRepository.save(metaPermission);
+    Map<String, List<MetaPermissionRule>> rulesByField = new LinkedHashMap<>();
+    for (MetaPermissionRule rule : metaPermission.getRules()) {
+      rulesByField
+          .computeIfAbsent(Objects.toString(rule.getField(), ""), field -> new ArrayList<>())
+          .add(rule);
     }
-  }
 
-  private void processMetaPermission(MetaPermission metaPermission, MetaField metaField) {
-    if (metaPermission == null) {
-      logger.warning("MetaPermission is null for MetaField: " + metaField.getName());
-      return;
+    Set<String> existingFields = new HashSet<>();
+    List<MetaPermissionRule> obsoleteRules = new ArrayList<>();
+    for (Map.Entry<String, List<MetaPermissionRule>> entry : rulesByField.entrySet()) {
+      List<MetaPermissionRule> rules = entry.getValue();
+      MetaPermissionRule kept =
+          rules.stream().filter(rule -> !isGeneratedRule(rule)).findFirst().orElse(rules.get(0));
+      if (isGeneratedRule(kept) && skippedFieldNames.contains(entry.getKey())) {
+        kept = null;
+      } else {
+        existingFields.add(entry.getKey());
+      }
+      for (MetaPermissionRule rule : rules) {
+        if (rule != kept) {
+          obsoleteRules.add(rule);
+        }
+      }
     }
 
-    updateMetaPermissionRules(metaPermission, metaField);
-  }
+    List<String> missingFields =
+        fieldNames.stream()
+            .filter(fieldName -> !existingFields.contains(fieldName))
+            .collect(Collectors.toList());
 
-  private void updateMetaPermissionRules(MetaPermission metaPermission, MetaField metaField) {
-    Set<MetaPermissionRule> existingRules =
-        new HashSet<>(
-            metaPermission.getRules() != null ? metaPermission.getRules() : Collections.emptySet());
-    logger.info(
-        "Existing rules for MetaPermission " + metaPermission.getName() + ": " + existingRules);
+    if (obsoleteRules.isEmpty() && missingFields.isEmpty()) {
+      return 0;
+    }
 
-    if (!metaPermissionRuleExists(metaPermission, metaField)) {
-      MetaPermissionRule newRule = buildMetaPermissionRule(metaField, metaPermission);
-      MetaPermissionRule savedRule = metaPermissionRuleRepository.save(newRule);
-      existingRules.add(savedRule);
-      logger.info("MetaPermissionRule saved: " + savedRule.getId());
+    metaPermission.getRules().removeAll(obsoleteRules);
+    for (String fieldName : missingFields) {
+      MetaPermissionRule rule = buildMetaPermissionRule(fieldName, metaPermission);
+      metaPermission.getRules().add(metaPermissionRuleRepository.save(rule));
     }
+    metaPermissionRepository.save(metaPermission);
+    count(statistics, ScriptMetricsService.RULES_INSERTED, missingFields.size());
+    count(statistics, ScriptMetricsService.RULES_DELETED, obsoleteRules.size());
 
-    metaPermission.getRules().clear();
-    metaPermission.getRules().addAll(existingRules);
+    logger.fine(
+        "MetaPermission "
+            + metaPermission.getName()
+            + ": "
+            + missingFields.size()
+            + " rules added, "
+            + obsoleteRules.size()
+            + " rules removed");
 
-    MetaPermission savedMetaPermission = metaPermissionRepository.save(metaPermission);
-    logger.info("MetaPermission saved: " + savedMetaPermission.getName());
+    return missingFields.size() + obsoleteRules.size();
   }
 
   private MetaPermissionRule buildMetaPermissionRule(
-      MetaField metaField, MetaPermission metaPermission) {
+      String fieldName, MetaPermission metaPermission) {
     MetaPermissionRule metaPermissionRule = new MetaPermissionRule();
-    metaPermissionRule.setField(metaField.getName());
+    metaPermissionRule.setField(fieldName);
     metaPermissionRule.setCanRead(true);
     metaPermissionRule.setCanExport(true);
     metaPermissionRule.setCanWrite(true);
     metaPermissionRule.setMetaPermission(metaPermission);
     return metaPermissionRule;
   }
-
-  private boolean metaPermissionRuleExists(MetaPermission metaPermission, MetaField metaField) {
-    return metaPermission.getRules().stream()
-        .anyMatch(rule -> rule.getField().equals(metaField.getName()));
-  }
-
-  private List<MetaField> scriptFindByModel(MetaModel metaModel) {
-    if (metaModel == null) {
-      logger.severe("metaModel cannot be null");
-      throw new IllegalArgumentException("metaModel cannot be null");
-    }
-    return metaModel.getMetaFields();
-  }
 }
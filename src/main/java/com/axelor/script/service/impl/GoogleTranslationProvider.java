@@ -0,0 +1,199 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.app.AppSettings;
+import com.axelor.script.service.TranslationProvider;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Calls the public Google translate endpoint through one shared {@link HttpClient}, so that
+ * connections are kept alive and reused by all the translation workers.
+ *
+ * <p>Failed requests are retried when the failure is transient (network error, timeout, HTTP 429
+ * or 5xx), waiting a random delay bounded by an exponential backoff between attempts.
+ */
+@Singleton
+public class GoogleTranslationProvider implements TranslationProvider {
+
+  private static final String CONNECT_TIMEOUT_KEY = "script.translation.google.connect-timeout-ms";
+  private static final String REQUEST_TIMEOUT_KEY = "script.translation.google.request-timeout-ms";
+  private static final String MAX_ATTEMPTS_KEY = "script.translation.google.max-attempts";
+  private static final String BACKOFF_KEY = "script.translation.google.backoff-ms";
+
+  private static final long MAX_BACKOFF_MS = 10_000;
+
+  private static final String USER_AGENT = "Mozilla/5.0";
+  private static final String TRANSLATE_API_URL =
+      "https://translate.googleapis.com/translate_a/single";
+
+  private final HttpClient httpClient;
+  private final Duration requestTimeout;
+  private final int maxAttempts;
+  private final long backoff;
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  public GoogleTranslationProvider() {
+    AppSettings settings = AppSettings.get();
+    this.httpClient =
+        HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(settings.getInt(CONNECT_TIMEOUT_KEY, 5000)))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    this.requestTimeout = Duration.ofMillis(settings.getInt(REQUEST_TIMEOUT_KEY, 15000));
+    this.maxAttempts = Math.max(1, settings.getInt(MAX_ATTEMPTS_KEY, 3));
+    this.backoff = Math.max(1, settings.getInt(BACKOFF_KEY, 200));
+  }
+
+  @Override
+  public String translate(String from, String to, String text) throws IOException {
+    HttpRequest request =
+        HttpRequest.newBuilder(buildUri(from, to, text))
+            .timeout(requestTimeout)
+            .header("User-Agent", USER_AGENT)
+            .header("Accept-Encoding", "gzip")
+            .GET()
+            .build();
+
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return send(request);
+      } catch (TransientException e) {
+        if (attempt >= maxAttempts) {
+          throw new IOException(
+              String.format("Translation failed after %d attempts", attempt), e.getCause());
+        }
+        sleep(attempt);
+      }
+    }
+  }
+
+  @Override
+  public boolean supportsPacking() {
+    return true;
+  }
+
+  private URI buildUri(String from, String to, String request) {
+    return URI.create(
+        TRANSLATE_API_URL
+            + "?"
+            + "client=gtx&"
+            + "sl="
+            + from
+            + "&"
+            + "tl="
+            + to
+            + "&"
+            + "dt=t&q="
+            + URLEncoder.encode(request, StandardCharsets.UTF_8));
+  }
+
+  private String send(HttpRequest request) throws IOException {
+    HttpResponse<InputStream> response;
+    try {
+      response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Translation request interrupted");
+    } catch (IOException e) {
+      throw new TransientException(e);
+    }
+
+    try (InputStream body = decode(response)) {
+      int status = response.statusCode();
+      if (status == 200) {
+        String translated = parseResponse(body);
+        // Reading the remainder lets the client reuse the connection.
+        body.transferTo(OutputStream.nullOutputStream());
+        return translated;
+      }
+      IOException failure = new IOException("Translation service answered HTTP " + status);
+      if (status == 429 || status >= 500) {
+        throw new TransientException(failure);
+      }
+      throw failure;
+    }
+  }
+
+  private InputStream decode(HttpResponse<InputStream> response) throws IOException {
+    boolean gzip =
+        response
+            .headers()
+            .firstValue("Content-Encoding")
+            .filter("gzip"::equalsIgnoreCase)
+            .isPresent();
+    return gzip ? new GZIPInputStream(response.body()) : response.body();
+  }
+
+  /** Waits a random delay up to {@code backoff * 2^(attempt - 1)} before the next attempt. */
+  private void sleep(int attempt) throws InterruptedIOException {
+    long bound = Math.min(MAX_BACKOFF_MS, backoff << Math.min(attempt - 1, 20));
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(bound / 2, bound + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Translation retry interrupted");
+    }
+  }
+
+  /**
+   * The provider splits long input into sentences, each one is an entry of the first array and
+   * starts with its translation. Only that array is read, the rest of the response is skipped.
+   */
+  private String parseResponse(InputStream body) throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(body)) {
+      parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.VALUE_STRING) {
+        return parser.getText();
+      }
+      if (token != JsonToken.START_ARRAY || parser.nextToken() != JsonToken.START_ARRAY) {
+        return "";
+      }
+
+      StringBuilder translated = new StringBuilder();
+      while (parser.nextToken() == JsonToken.START_ARRAY) {
+        if (parser.nextToken() == JsonToken.VALUE_STRING) {
+          translated.append(parser.getText());
+        }
+        skipToEndOfArray(parser);
+      }
+      return translated.toString();
+    }
+  }
+
+  private void skipToEndOfArray(JsonParser parser) throws IOException {
+    JsonToken token = parser.currentToken();
+    while (token != JsonToken.END_ARRAY) {
+      if (token == null) {
+        throw new IOException("Truncated translation response");
+      }
+      parser.skipChildren();
+      token = parser.nextToken();
+    }
+  }
+
+  /** Failure worth another attempt, the cause is the original error. */
+  private static class TransientException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    TransientException(IOException cause) {
+      super(cause);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.repo.RoleRepository;
+import com.axelor.db.JPA;
+import com.axelor.meta.db.MetaModel;
+import com.axelor.meta.db.repo.MetaModelRepository;
+import com.axelor.script.service.FieldService;
+import com.axelor.script.service.IncrementalGenerationService;
+import com.axelor.script.service.PermissionService;
+import com.axelor.script.service.ScriptAuditService;
+import com.axelor.script.service.ScriptJobService;
+import com.axelor.script.service.ScriptLockService;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppScriptRepository;
+import com.google.inject.Inject;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class IncrementalGenerationServiceImpl implements IncrementalGenerationService {
+
+  private static final Logger logger =
+      LoggerFactory.getLogger(IncrementalGenerationServiceImpl.class);
+
+  private static final String APP_MODEL_FILTER =
+      "self.id IN (SELECT model.id FROM AppScript appScript JOIN appScript.model model"
+          + " WHERE appScript.id = :appScriptId)";
+  private static final String CHANGED_MODEL_FILTER =
+      "self.createdOn > :since OR self.updatedOn > :since";
+  private static final String CHANGED_FIELD_FILTER =
+      CHANGED_MODEL_FILTER
+          + " OR EXISTS (SELECT field.id FROM MetaField field WHERE field.metaModel = self"
+          + " AND (field.createdOn > :since OR field.updatedOn > :since))";
+
+  private final PermissionService permissionService;
+  private final FieldService fieldService;
+  private final MetaModelRepository metaModelRepository;
+  private final RoleRepository roleRepository;
+  private final AppScriptRepository appScriptRepository;
+  private final ScriptAuditService auditService;
+  private final ScriptJobService scriptJobService;
+  private final ScriptLockService lockService;
+
+  @Inject
+  public IncrementalGenerationServiceImpl(
+      PermissionService permissionService,
+      FieldService fieldService,
+      MetaModelRepository metaModelRepository,
+      RoleRepository roleRepository,
+      AppScriptRepository appScriptRepository,
+      ScriptAuditService auditService,
+      ScriptJobService scriptJobService,
+      ScriptLockService lockService) {
+    this.permissionService = permissionService;
+    this.fieldService = fieldService;
+    this.metaModelRepository = metaModelRepository;
+    this.roleRepository = roleRepository;
+    this.appScriptRepository = appScriptRepository;
+    this.auditService = auditService;
+    this.scriptJobService = scriptJobService;
+    this.lockService = lockService;
+  }
+
+  /**
+   * The lease is taken and released outside of the regeneration transaction, and renewed in it
+   * before it commits, so that a node that lost the lease rolls its changes back.
+   */
+  @Override
+  public String regenerateChanges(AppScript appScript) {
+    AppScript saved = appScriptRepository.find(appScript.getId());
+    if (saved.getLastPermissionGenerationDateT() == null
+        || saved.getLastFieldGenerationDateT() == null) {
+      // without a watermark everything is a change, which is the job of the chunked generation
+      throw new IllegalStateException(
+          "Generate permissions and field rules once before regenerating changes");
+    }
+    if (scriptJobService.isRunning()
+        || !lockService.acquire(ScriptLockService.GENERATION_LOCK)) {
+      throw new IllegalStateException("A generation is already running, try again once it is done");
+    }
+    try {
+      String[] summary = new String[1];
+      JPA.runInTransaction(
+          () -> {
+            summary[0] = regenerate(appScriptRepository.find(appScript.getId()));
+            if (!lockService.renew(ScriptLockService.GENERATION_LOCK)) {
+              throw new IllegalStateException(
+                  "The generation lease was taken over by "
+                      + lockService.getOwner(ScriptLockService.GENERATION_LOCK));
+            }
+          });
+      return summary[0];
+    } finally {
+      lockService.release(ScriptLockService.GENERATION_LOCK);
+    }
+  }
+
+  private String regenerate(AppScript appScript) {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime permissionsSince = appScript.getLastPermissionGenerationDateT();
+    LocalDateTime fieldsSince = appScript.getLastFieldGenerationDateT();
+
+    List<Role> roles = roleRepository.all().fetch();
+    List<Role> newPermissionRoles = fetchNewRoles(permissionsSince);
+    List<Role> newFieldRoles = fetchNewRoles(fieldsSince);
+
+    List<MetaModel> changedAppModels =
+        fetchAppModels(appScript, CHANGED_MODEL_FILTER, permissionsSince);
+    List<MetaModel> changedFieldModels =
+        metaModelRepository.all().filter(CHANGED_FIELD_FILTER).bind("since", fieldsSince).fetch();
+
+    permissionService.generateMetaPermissions(changedAppModels, roles);
+    if (!newPermissionRoles.isEmpty()) {
+      permissionService.generateMetaPermissions(
+          fetchAppModels(appScript, null, permissionsSince), newPermissionRoles);
+    }
+
+    fieldService.generateMetaPermissionRules(changedFieldModels, roles);
+    if (!newFieldRoles.isEmpty()) {
+      fieldService.generateMetaPermissionRules(metaModelRepository.all().fetch(), newFieldRoles);
+    }
+
+    appScript.setLastPermissionGenerationDateT(now);
+    appScript.setLastFieldGenerationDateT(now);
+    appScriptRepository.save(appScript);
+
+    int newRoles = Math.max(newPermissionRoles.size(), newFieldRoles.size());
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    counts.put("changedModels", changedAppModels.size());
+    counts.put("changedFieldModels", changedFieldModels.size());
+    counts.put("newRoles", newRoles);
+    Set<Long> modelIds = new TreeSet<>();
+    changedAppModels.forEach(model -> modelIds.add(model.getId()));
+    changedFieldModels.forEach(model -> modelIds.add(model.getId()));
+    auditService.logSummary("Incremental generation", counts, modelIds);
+
+    String summary =
+        String.format(
+            "%d changed models, %d models with changed fields, %d new roles",
+            changedAppModels.size(),
+            changedFieldModels.size(),
+            newRoles);
+    logger.info("Incremental generation: {}", summary);
+    return summary;
+  }
+
+  private List<Role> fetchNewRoles(LocalDateTime since) {
+    return roleRepository.all().filter("self.createdOn > :since").bind("since", since).fetch();
+  }
+
+  private List<MetaModel> fetchAppModels(AppScript appScript, String filter, LocalDateTime since) {
+    if (filter == null) {
+      return metaModelRepository
+          .all()
+          .filter(APP_MODEL_FILTER)
+          .bind("appScriptId", appScript.getId())
+          .fetch();
+    }
+    return metaModelRepository
+        .all()
+        .filter(APP_MODEL_FILTER + " AND (" + filter + ")")
+        .bind("appScriptId", appScript.getId())
+        .bind("since", since)
+        .fetch();
+  }
+}
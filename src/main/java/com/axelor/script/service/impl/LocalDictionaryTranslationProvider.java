@@ -0,0 +1,130 @@
+package com.axelor.script.service.impl;
+
+import static com.axelor.script.service.impl.TabSeparatedText.escape;
+import static com.axelor.script.service.impl.TabSeparatedText.unescape;
+
+import com.axelor.app.AppSettings;
+import com.axelor.script.service.TranslationProvider;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Offline provider reading a memory-mapped dictionary file.
+ *
+ * <p>Each line of the file is {@code from<TAB>to<TAB>text<TAB>translation}, encoded in UTF-8 and
+ * sorted byte-wise (for example with {@code LC_ALL=C sort}). Tabs, line breaks and backslashes
+ * inside texts are escaped as {@code \t}, {@code \n} and {@code \\}. Lookups are a binary search
+ * over the mapped bytes, so only the pages touched by the search are read from disk.
+ */
+@Singleton
+public class LocalDictionaryTranslationProvider implements TranslationProvider {
+
+  private static final Logger logger =
+      LoggerFactory.getLogger(LocalDictionaryTranslationProvider.class);
+
+  private static final String FILE_KEY = "script.translation.dictionary.file";
+
+  private static final byte SEPARATOR = '\t';
+  private static final byte NEW_LINE = '\n';
+
+  private final MappedByteBuffer buffer;
+
+  public LocalDictionaryTranslationProvider() {
+    String file = AppSettings.get().get(FILE_KEY, null);
+    if (file == null) {
+      throw new IllegalStateException(FILE_KEY + " is required by the local dictionary provider");
+    }
+    this.buffer = map(Paths.get(file));
+  }
+
+  LocalDictionaryTranslationProvider(Path path) {
+    this.buffer = map(path);
+  }
+
+  @Override
+  public String translate(String from, String to, String text) {
+    byte[] key =
+        (escape(from) + "\t" + escape(to) + "\t" + escape(text) + "\t")
+            .getBytes(StandardCharsets.UTF_8);
+
+    int low = 0;
+    int high = buffer.limit();
+    while (low < high) {
+      int start = lineStart((low + high) >>> 1);
+      int compare = compare(key, start);
+      if (compare == 0) {
+        return unescape(readValue(start + key.length));
+      }
+      if (compare > 0) {
+        low = lineEnd(start) + 1;
+      } else {
+        high = start;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean isRateLimited() {
+    return false;
+  }
+
+  private static MappedByteBuffer map(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Dictionary file " + path + " is larger than 2GB");
+      }
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      logger.info("Local dictionary {} mapped ({} bytes)", path, channel.size());
+      return mapped;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to map dictionary file " + path, e);
+    }
+  }
+
+  private int lineStart(int position) {
+    while (position > 0 && buffer.get(position - 1) != NEW_LINE) {
+      position--;
+    }
+    return position;
+  }
+
+  private int lineEnd(int position) {
+    while (position < buffer.limit() && buffer.get(position) != NEW_LINE) {
+      position++;
+    }
+    return position;
+  }
+
+  /** Compares the searched key with the beginning of the line, as unsigned bytes. */
+  private int compare(byte[] key, int start) {
+    for (int i = 0; i < key.length; i++) {
+      int position = start + i;
+      if (position >= buffer.limit() || buffer.get(position) == NEW_LINE) {
+        return 1;
+      }
+      int difference = (key[i] & 0xff) - (buffer.get(position) & 0xff);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return 0;
+  }
+
+  private String readValue(int start) {
+    int end = lineEnd(start);
+    byte[] value = new byte[end - start];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = buffer.get(start + i);
+    }
+    return new String(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,391 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.app.AppSettings;
+import com.axelor.auth.db.Permission;
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.repo.PermissionRepository;
+import com.axelor.auth.db.repo.RoleRepository;
+import com.axelor.db.JPA;
+import com.axelor.meta.db.MetaPermission;
+import com.axelor.meta.db.MetaPermissionRule;
+import com.axelor.meta.db.repo.MetaPermissionRepository;
+import com.axelor.meta.db.repo.MetaPermissionRuleRepository;
+import com.axelor.script.service.PermissionPlan;
+import com.axelor.script.service.PermissionPlanService;
+import com.axelor.script.service.ScriptAuditService;
+import com.axelor.script.service.ScriptMetricsService;
+import com.axelor.studio.db.AppScript;
+import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PermissionPlanServiceImpl implements PermissionPlanService {
+
+  private static final Logger logger = LoggerFactory.getLogger(PermissionPlanServiceImpl.class);
+
+  private static final int IN_CLAUSE_SIZE = 1000;
+  private static final int FLUSH_SIZE = 50;
+
+  private final RoleRepository roleRepository;
+  private final PermissionRepository permissionRepository;
+  private final MetaPermissionRepository metaPermissionRepository;
+  private final MetaPermissionRuleRepository metaPermissionRuleRepository;
+  private final ScriptMetricsService metricsService;
+  private final ScriptAuditService auditService;
+  private final EffectivePermissionCache permissionCache;
+  private final RoundTripCounter roundTripCounter;
+
+  @Inject
+  public PermissionPlanServiceImpl(
+      RoleRepository roleRepository,
+      PermissionRepository permissionRepository,
+      MetaPermissionRepository metaPermissionRepository,
+      MetaPermissionRuleRepository metaPermissionRuleRepository,
+      ScriptMetricsService metricsService,
+      ScriptAuditService auditService,
+      EffectivePermissionCache permissionCache,
+      RoundTripCounter roundTripCounter) {
+    this.roleRepository = roleRepository;
+    this.permissionRepository = permissionRepository;
+    this.metaPermissionRepository = metaPermissionRepository;
+    this.metaPermissionRuleRepository = metaPermissionRuleRepository;
+    this.metricsService = metricsService;
+    this.auditService = auditService;
+    this.permissionCache = permissionCache;
+    this.roundTripCounter = roundTripCounter;
+  }
+
+  @Override
+  public PermissionPlan plan(AppScript appScript) {
+    if (AppSettings.get().getBoolean(FieldServiceImpl.SHARED_PERMISSIONS_KEY, false)) {
+      // field rules are then held by shared.<model>.<hash> permissions, not role.model ones
+      throw new IllegalStateException(
+          "The permission plan does not support shared field permissions, use Generate Fields");
+    }
+    try (RoundTripCounter.Tracking tracking = roundTripCounter.track()) {
+      return buildPlan(appScript);
+    }
+  }
+
+  private PermissionPlan buildPlan(AppScript appScript) {
+    List<Object[]> roles = query("SELECT self.id, self.name FROM Role self ORDER BY self.id");
+    List<Object[]> models =
+        query(
+            "SELECT self.id, self.name, self.fullName, self.generate FROM MetaModel self"
+                + " ORDER BY self.id");
+    Set<Long> appModelIds =
+        new HashSet<>(
+            JPA.em()
+                .createQuery(
+                    "SELECT model.id FROM AppScript self JOIN self.model model WHERE self.id = :id",
+                    Long.class)
+                .setParameter("id", appScript.getId())
+                .getResultList());
+    List<Object[]> generatableFields =
+        query(
+            "SELECT self.metaModel.id, self.name FROM MetaField self"
+                + " WHERE self.generate = true ORDER BY self.id");
+    List<Object[]> skippedFields =
+        query(
+            "SELECT self.metaModel.id, self.name FROM MetaField self"
+                + " WHERE self.generate IS NULL OR self.generate = false");
+    List<String> permissions =
+        JPA.em().createQuery("SELECT self.name FROM Permission self", String.class).getResultList();
+    List<Object[]> rules =
+        query(
+            "SELECT self.id, self.metaPermission.name, self.field, self.canRead, self.canWrite,"
+                + " self.canExport, self.readonlyIf, self.hideIf FROM MetaPermissionRule self"
+                + " ORDER BY self.id");
+
+    List<Long> roleIds = new ArrayList<>();
+    List<String> roleNames = new ArrayList<>();
+    Map<String, Integer> roleIndex = new HashMap<>();
+    for (Object[] role : roles) {
+      roleIndex.put((String) role[1], roleIds.size());
+      roleIds.add((Long) role[0]);
+      roleNames.add((String) role[1]);
+    }
+
+    List<Long> modelIds = new ArrayList<>();
+    List<String> modelNames = new ArrayList<>();
+    List<String> modelFullNames = new ArrayList<>();
+    Map<Long, Integer> modelIndexById = new HashMap<>();
+    Map<String, Integer> modelIndexByName = new HashMap<>();
+    Set<Integer> generatedModels = new HashSet<>();
+    for (Object[] model : models) {
+      int index = modelIds.size();
+      modelIndexById.put((Long) model[0], index);
+      modelIndexByName.putIfAbsent((String) model[1], index);
+      if (appModelIds.contains(model[0]) && Boolean.TRUE.equals(model[3])) {
+        generatedModels.add(index);
+      }
+      modelIds.add((Long) model[0]);
+      modelNames.add((String) model[1]);
+      modelFullNames.add((String) model[2]);
+    }
+
+    List<List<String>> fieldsByModel = new ArrayList<>();
+    for (int i = 0; i < modelIds.size(); i++) {
+      fieldsByModel.add(new ArrayList<>());
+    }
+    for (Object[] field : generatableFields) {
+      Integer model = modelIndexById.get(field[0]);
+      if (model != null) {
+        fieldsByModel.get(model).add((String) field[1]);
+      }
+    }
+
+    List<Set<String>> skippedByModel = new ArrayList<>();
+    for (int i = 0; i < modelIds.size(); i++) {
+      skippedByModel.add(new HashSet<>());
+    }
+    for (Object[] field : skippedFields) {
+      Integer model = modelIndexById.get(field[0]);
+      if (model != null) {
+        skippedByModel.get(model).add((String) field[1]);
+      }
+    }
+
+    PermissionPlan plan =
+        new PermissionPlan(roleIds, roleNames, modelIds, modelNames, modelFullNames, fieldsByModel);
+
+    for (int role = 0; role < roleIds.size(); role++) {
+      for (int model : generatedModels) {
+        plan.setDesiredGrant(role, model);
+      }
+      for (int model = 0; model < modelIds.size(); model++) {
+        for (String field : fieldsByModel.get(model)) {
+          plan.setDesiredRule(role, model, field);
+        }
+      }
+    }
+
+    for (String permission : permissions) {
+      int[] cell = parseName(permission, roleIndex, modelIndexByName);
+      if (cell != null) {
+        plan.setCurrentGrant(cell[0], cell[1]);
+      }
+    }
+    Map<String, List<Object[]>> rulesByCell = new LinkedHashMap<>();
+    for (Object[] rule : rules) {
+      rulesByCell
+          .computeIfAbsent(rule[1] + "|" + Objects.toString(rule[2], ""), key -> new ArrayList<>())
+          .add(rule);
+    }
+    for (List<Object[]> fieldRules : rulesByCell.values()) {
+      Object[] first = fieldRules.get(0);
+      int[] cell = parseName((String) first[1], roleIndex, modelIndexByName);
+      if (cell != null) {
+        planRules(plan, cell, fieldsByModel, skippedByModel, fieldRules);
+      }
+    }
+
+    logger.info("Permission plan: {}", plan.getReport());
+    return plan;
+  }
+
+  /**
+   * Mirrors field generation on the rules of one field of a role permission: the first edited rule
+   * is kept, or else the first one, unless it is generated and its field is no longer generated.
+   * Every other rule is deleted. Models without generated fields are left alone, as generation
+   * does.
+   */
+  private void planRules(
+      PermissionPlan plan,
+      int[] cell,
+      List<List<String>> fieldsByModel,
+      List<Set<String>> skippedByModel,
+      List<Object[]> fieldRules) {
+    String field = (String) fieldRules.get(0)[2];
+    if (fieldsByModel.get(cell[1]).isEmpty()) {
+      return;
+    }
+    Object[] kept =
+        fieldRules.stream().filter(rule -> !isGeneratedRule(rule)).findFirst().orElse(null);
+    if (kept == null && !skippedByModel.get(cell[1]).contains(Objects.toString(field, ""))) {
+      kept = fieldRules.get(0);
+    }
+    if (kept != null) {
+      plan.setCurrentRule(cell[0], cell[1], field);
+    }
+    for (Object[] rule : fieldRules) {
+      if (rule != kept) {
+        plan.addRuleDelete(cell[0], cell[1], field, (Long) rule[0]);
+      }
+    }
+  }
+
+  /** Same check as field generation: the rule grants everything, without conditions. */
+  private boolean isGeneratedRule(Object[] rule) {
+    return Boolean.TRUE.equals(rule[3])
+        && Boolean.TRUE.equals(rule[4])
+        && Boolean.TRUE.equals(rule[5])
+        && Objects.toString(rule[6], "").isEmpty()
+        && Objects.toString(rule[7], "").isEmpty();
+  }
+
+  @Override
+  @Transactional
+  public Map<String, Integer> apply(AppScript appScript, String fingerprint) {
+    PermissionPlan plan = plan(appScript);
+    if (!plan.getFingerprint().equals(fingerprint)) {
+      throw new IllegalStateException(
+          "The permissions changed since the preview, preview the changes again");
+    }
+    Map<String, Integer> statistics = plan.getStatistics();
+
+    try (RoundTripCounter.Tracking tracking = roundTripCounter.track()) {
+      insertPermissions(plan);
+      insertRules(plan);
+      JPA.flush();
+
+      deleteByIds("MetaPermissionRule", plan.getRuleDeleteIds());
+      JPA.clear();
+    }
+
+    metricsService.increment(
+        ScriptMetricsService.PERMISSIONS_CREATED, statistics.get("permissionInserts"));
+    metricsService.increment(ScriptMetricsService.RULES_INSERTED, statistics.get("ruleInserts"));
+    metricsService.increment(ScriptMetricsService.RULES_DELETED, statistics.get("ruleDeletes"));
+    permissionCache.invalidateAllOnCompletion();
+    auditService.logSummary("Permission plan applied", statistics, Collections.emptyList());
+    logger.info("Permission plan applied: {}", statistics);
+    return statistics;
+  }
+
+  private void insertPermissions(PermissionPlan plan) {
+    Map<Integer, List<Permission>> permissionsByRole = new HashMap<>();
+    int[] pending = new int[1];
+    plan.forEachPermissionInsert(
+        (role, model) -> {
+          Permission permission = new Permission();
+          permission.setName(plan.getPermissionName(role, model));
+          permission.setObject(plan.getModelFullName(model));
+          setFlags(permission, PermissionPlan.ALL_FLAGS);
+          permissionsByRole
+              .computeIfAbsent(role, key -> new ArrayList<>())
+              .add(permissionRepository.save(permission));
+          pending[0] = flush(pending[0] + 1);
+        });
+
+    permissionsByRole.forEach(
+        (role, permissions) -> {
+          Role managedRole = roleRepository.find(plan.getRoleId(role));
+          if (managedRole.getPermissions() == null) {
+            managedRole.setPermissions(new HashSet<>());
+          }
+          managedRole.getPermissions().addAll(permissions);
+          roleRepository.save(managedRole);
+        });
+  }
+
+  private void insertRules(PermissionPlan plan) {
+    Map<String, int[]> cells = new HashMap<>();
+    plan.forEachRuleInsert(
+        (role, model, field) ->
+            cells.putIfAbsent(plan.getPermissionName(role, model), new int[] {role, model}));
+    if (cells.isEmpty()) {
+      return;
+    }
+
+    Map<String, MetaPermission> metaPermissions = new HashMap<>();
+    List<String> names = new ArrayList<>(cells.keySet());
+    for (int from = 0; from < names.size(); from += IN_CLAUSE_SIZE) {
+      metaPermissionRepository
+          .all()
+          .filter("self.name IN :names")
+          .bind("names", names.subList(from, Math.min(from + IN_CLAUSE_SIZE, names.size())))
+          .fetch()
+          .forEach(metaPermission -> metaPermissions.put(metaPermission.getName(), metaPermission));
+    }
+
+    Map<Integer, List<MetaPermission>> metaPermissionsByRole = new HashMap<>();
+    cells.forEach(
+        (name, cell) -> {
+          MetaPermission metaPermission = metaPermissions.get(name);
+          if (metaPermission == null) {
+            metaPermission = new MetaPermission();
+            metaPermission.setName(name);
+            metaPermission.setObject(plan.getModelFullName(cell[1]));
+            metaPermissions.put(name, metaPermissionRepository.save(metaPermission));
+          }
+          metaPermissionsByRole
+              .computeIfAbsent(cell[0], key -> new ArrayList<>())
+              .add(metaPermissions.get(name));
+        });
+
+    metaPermissionsByRole.forEach(
+        (role, rolePermissions) -> {
+          Role managedRole = roleRepository.find(plan.getRoleId(role));
+          if (managedRole.getMetaPermissions() == null) {
+            managedRole.setMetaPermissions(new HashSet<>());
+          }
+          managedRole.getMetaPermissions().addAll(rolePermissions);
+          roleRepository.save(managedRole);
+        });
+
+    int[] pending = new int[1];
+    plan.forEachRuleInsert(
+        (role, model, field) -> {
+          MetaPermissionRule rule = new MetaPermissionRule();
+          rule.setField(field);
+          rule.setCanRead(true);
+          rule.setCanWrite(true);
+          rule.setCanExport(true);
+          rule.setMetaPermission(metaPermissions.get(plan.getPermissionName(role, model)));
+          metaPermissionRuleRepository.save(rule);
+          pending[0] = flush(pending[0] + 1);
+        });
+  }
+
+  private void deleteByIds(String entity, List<Long> ids) {
+    for (int from = 0; from < ids.size(); from += IN_CLAUSE_SIZE) {
+      JPA.em()
+          .createQuery("DELETE FROM " + entity + " self WHERE self.id IN :ids")
+          .setParameter("ids", ids.subList(from, Math.min(from + IN_CLAUSE_SIZE, ids.size())))
+          .executeUpdate();
+    }
+  }
+
+  private List<Object[]> query(String query) {
+    return JPA.em().createQuery(query, Object[].class).getResultList();
+  }
+
+  /** Resolves a generated {@code role.model} name to its plan cell, {@code null} otherwise. */
+  private int[] parseName(
+      String name, Map<String, Integer> roleIndex, Map<String, Integer> modelIndexByName) {
+    int split = name == null ? -1 : name.lastIndexOf('.');
+    if (split <= 0) {
+      return null;
+    }
+    Integer role = roleIndex.get(name.substring(0, split));
+    Integer model = modelIndexByName.get(name.substring(split + 1));
+    return role == null || model == null ? null : new int[] {role, model};
+  }
+
+  private void setFlags(Permission permission, int flags) {
+    permission.setCanRead((flags & PermissionPlan.CAN_READ) != 0);
+    permission.setCanWrite((flags & PermissionPlan.CAN_WRITE) != 0);
+    permission.setCanCreate((flags & PermissionPlan.CAN_CREATE) != 0);
+    permission.setCanRemove((flags & PermissionPlan.CAN_REMOVE) != 0);
+    permission.setCanExport((flags & PermissionPlan.CAN_EXPORT) != 0);
+  }
+
+  private int flush(int pending) {
+    if (pending < FLUSH_SIZE) {
+      return pending;
+    }
+    JPA.flush();
+    return 0;
+  }
+}
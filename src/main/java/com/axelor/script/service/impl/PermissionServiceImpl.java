@@ -1,31 +1,54 @@
 package com.axelor.script.service.impl;
 
+import com.axelor.app.AppSettings;
+import com.axelor.auth.AuthUtils;
 import com.axelor.auth.db.Permission;
 import com.axelor.auth.db.Role;
 import com.axelor.auth.db.repo.PermissionRepository;
 import com.axelor.auth.db.repo.RoleRepository;
+import com.axelor.db.JPA;
 import com.axelor.meta.db.MetaModel;
 import com.axelor.meta.db.repo.MetaModelRepository;
 import com.axelor.script.service.PermissionService;
+import com.axelor.script.service.ScriptAuditService;
+import com.axelor.script.service.ScriptMetricsService;
 import com.axelor.studio.db.App;
 import com.axelor.studio.db.AppScript;
 import com.axelor.studio.db.repo.AppRepository;
 import com.axelor.studio.db.repo.AppScriptRepository;
 import com.google.inject.Inject;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.query.NativeQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class PermissionServiceImpl implements PermissionService {
 
+  private static final String BATCH_SIZE_KEY = "script.permission.batch-size";
+  private static final int DEFAULT_BATCH_SIZE = 50;
+  private static final int IN_CLAUSE_SIZE = 1000;
+
   private final RoleRepository roleRepository;
   private final PermissionRepository permissionRepository;
   private final MetaModelRepository modelRepository;
   private final AppRepository appRepository;
   private final AppScriptRepository appScriptRepository;
+  private final ScriptMetricsService metricsService;
+  private final ScriptAuditService auditService;
+  private final EffectivePermissionCache permissionCache;
+  private final RoundTripCounter roundTripCounter;
   private static final Logger logger = LoggerFactory.getLogger(PermissionServiceImpl.class);
 
   @Inject
@@ -34,29 +57,89 @@ public class PermissionServiceImpl implements PermissionService {
       PermissionRepository permissionRepository,
       MetaModelRepository modelRepository,
       AppRepository appRepository,
-      AppScriptRepository appScriptRepository) {
+      AppScriptRepository appScriptRepository,
+      ScriptMetricsService metricsService,
+      ScriptAuditService auditService,
+      EffectivePermissionCache permissionCache,
+      RoundTripCounter roundTripCounter) {
     this.roleRepository = roleRepository;
     this.permissionRepository = permissionRepository;
     this.modelRepository = modelRepository;
     this.appRepository = appRepository;
     this.appScriptRepository = appScriptRepository;
+    this.metricsService = metricsService;
+    this.auditService = auditService;
+    this.permissionCache = permissionCache;
+    this.roundTripCounter = roundTripCounter;
   }
 
   @Override
-  public void generateMetaPermissions(List<MetaModel> models) {
+  public Map<String, Integer> generateMetaPermissions(List<MetaModel> models) {
+    return generateMetaPermissions(models, roleRepository.all().fetch());
+  }
+
+  @Override
+  public Map<String, Integer> generateMetaPermissions(List<MetaModel> models, List<Role> roles) {
     logger.info("Starting generating meta permissions...");
 
     if (models == null || models.isEmpty()) {
       logger.warn("No models provided for generating meta permissions.");
-      return;
+      return Collections.emptyMap();
     }
 
-    models.stream()
-        .filter(MetaModel::getGenerate)
-        .forEach(
-            model -> roleRepository.all().fetch().forEach(role -> generatePermission(role, model)));
+    List<MetaModel> generatableModels =
+        models.stream().filter(MetaModel::getGenerate).collect(Collectors.toList());
+    if (generatableModels.isEmpty()) {
+      logger.info("No models marked for generation.");
+      return Collections.emptyMap();
+    }
+
+    try (RoundTripCounter.Tracking tracking = roundTripCounter.track()) {
+      long start = System.nanoTime();
+      Set<String> existingNames = fetchExistingPermissionNames(roles, generatableModels);
+      int batchSize = AppSettings.get().getInt(BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE);
+
+      int created = 0;
+      int skipped = 0;
+      for (Role role : roles) {
+        List<Permission> newPermissions = new ArrayList<>();
+
+        for (MetaModel model : generatableModels) {
+          String permissionName = getPermissionName(role, model);
+          if (!existingNames.add(permissionName)) {
+            skipped++;
+            continue;
+          }
+          newPermissions.add(permissionRepository.save(buildPermission(model, permissionName)));
+          if (++created % batchSize == 0) {
+            JPA.flush();
+          }
+        }
 
-    logger.info("Finished generating meta permissions.");
+        if (!newPermissions.isEmpty()) {
+          assignPermissions(role, newPermissions);
+        }
+      }
+      // sent now rather than at commit, so that the statements are counted
+      JPA.flush();
+
+      metricsService.increment(ScriptMetricsService.MODELS_SCANNED, generatableModels.size());
+      metricsService.increment(ScriptMetricsService.PERMISSIONS_CREATED, created);
+      metricsService.increment(ScriptMetricsService.PERMISSIONS_SKIPPED, skipped);
+      metricsService.recordTime(
+          ScriptMetricsService.PERMISSION_GENERATION_TIME, System.nanoTime() - start);
+
+      logger.info(
+          "Finished generating meta permissions: {} created, {} already existing.",
+          created,
+          skipped);
+
+      Map<String, Integer> statistics = new TreeMap<>();
+      statistics.put(ScriptMetricsService.MODELS_SCANNED, generatableModels.size());
+      statistics.put(ScriptMetricsService.PERMISSIONS_CREATED, created);
+      statistics.put(ScriptMetricsService.PERMISSIONS_SKIPPED, skipped);
+      return statistics;
+    }
   }
 
   @Override
@@ -69,56 +152,99 @@ public class PermissionServiceImpl implements PermissionService {
         Optional.ofNullable(app.getAppScript())
             .orElseThrow(() -> new IllegalStateException("AppScript for app 'script' is not set"));
 
-    List<MetaModel> models =
-        Optional.ofNullable(modelRepository.all().fetch())
-            .orElseThrow(
-                () -> new IllegalStateException("Model repository returned null models list"));
+    SessionFactoryImplementor factory =
+        JPA.em().getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+    AbstractCollectionPersister collection =
+        (AbstractCollectionPersister)
+            factory.getMetamodel().collectionPersister(AppScript.class.getName() + ".model");
+    AbstractEntityPersister modelEntity =
+        (AbstractEntityPersister) factory.getMetamodel().entityPersister(MetaModel.class);
+
+    String joinTable = collection.getTableName();
+    String appScriptColumn = collection.getKeyColumnNames()[0];
+    String modelColumn = collection.getElementColumnNames()[0];
+    String unlinked =
+        String.format(
+            " FROM %s model WHERE NOT EXISTS (SELECT 1 FROM %s link WHERE link.%s = model.id)",
+            modelEntity.getTableName(), joinTable, modelColumn);
+    String sql =
+        String.format(
+            "INSERT INTO %s (%s, %s) SELECT :appScriptId, model.id%s",
+            joinTable, appScriptColumn, modelColumn, unlinked);
+
+    List<Long> modelIds = new ArrayList<>();
+    for (Object id : JPA.em().createNativeQuery("SELECT model.id" + unlinked).getResultList()) {
+      modelIds.add(((Number) id).longValue());
+    }
+
+    // the synchronized space limits second-level cache eviction to the AppScript.model collection
+    int linked =
+        JPA.em()
+            .createNativeQuery(sql)
+            .setParameter("appScriptId", appScript.getId())
+            .unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace(joinTable)
+            .executeUpdate();
+    JPA.em().refresh(appScript);
 
-    appScript.setModel(models);
-    appScriptRepository.save(appScript);
+    auditService.logSummary("Models linked to app", Map.of("linked", linked), modelIds);
+    logger.info("Linked {} models to app script", linked);
   }
 
   @Override
   public void selectAll() {
-    if (modelRepository == null) {
-      logger.error("modelRepository is null");
-      throw new NullPointerException("modelRepository is null");
-    }
+    String filter = "self.generate IS NULL OR self.generate = false";
+    List<Long> modelIds =
+        JPA.em()
+            .createQuery("SELECT self.id FROM MetaModel self WHERE " + filter, Long.class)
+            .getResultList();
+    // Stamps updatedOn even without a user, so that "Regenerate changes" picks the models up.
+    Map<String, Object> values = Map.of("generate", true, "updatedOn", LocalDateTime.now());
+    int updated = modelRepository.all().filter(filter).update(values, AuthUtils.getUser());
 
-    List<MetaModel> models = modelRepository.all().fetch();
-    if (models == null) {
-      logger.error("modelRepository.all().fetch() returned null");
-      throw new NullPointerException("modelRepository.all().fetch() returned null");
-    }
+    auditService.logSummary("Models marked for generation", Map.of("marked", updated), modelIds);
+    logger.info("Marked {} models for generation", updated);
+  }
 
-    for (MetaModel model : models) {
-      if (model != null) {
-        try {
-          model.setGenerate(true);
-          modelRepository.save(model);
-          logger.info("Model saved: " + model);
-        } catch (Exception e) {
-          logger.error("Failed to save model: " + model + ", exception: " + e.getMessage());
-        }
-      } else {
-        logger.error("Encountered null model in list");
-      }
-    }
+  @Override
+  public int getModelGrants(Long roleId, String model) {
+    return permissionCache.get(roleId).getModelGrants(model);
   }
 
-  private void generatePermission(Role role, MetaModel metaModel) {
-    String permissionName = String.format("%s.%s", role.getName(), metaModel.getName());
+  @Override
+  public int getFieldGrants(Long roleId, String model, String field) {
+    return permissionCache.get(roleId).getFieldGrants(model, field);
+  }
 
-    Permission existingPermission = permissionRepository.findByName(permissionName);
-    if (existingPermission != null) {
-      logger.debug("Permission {} already exists, skipping creation.", permissionName);
-      return;
+  /**
+   * Loads the names among those to generate that already exist. Names are matched rather than
+   * objects, two models with the same simple name give the same permission name.
+   */
+  private Set<String> fetchExistingPermissionNames(List<Role> roles, List<MetaModel> models) {
+    List<String> names = new ArrayList<>();
+    for (Role role : roles) {
+      for (MetaModel model : models) {
+        names.add(getPermissionName(role, model));
+      }
+    }
+    Set<String> existingNames = new HashSet<>();
+    for (int from = 0; from < names.size(); from += IN_CLAUSE_SIZE) {
+      existingNames.addAll(
+          JPA.em()
+              .createQuery(
+                  "SELECT self.name FROM Permission self WHERE self.name IN :names", String.class)
+              .setParameter(
+                  "names", names.subList(from, Math.min(from + IN_CLAUSE_SIZE, names.size())))
+              .getResultList());
     }
+    return existingNames;
+  }
 
-    createAndAssignPermission(role, metaModel, permissionName);
+  private String getPermissionName(Role role, MetaModel metaModel) {
+    return String.format("%s.%s", role.getName(), metaModel.getName());
   }
 
-  private void createAndAssignPermission(Role role, MetaModel metaModel, String permissionName) {
+  private Permission buildPermission(MetaModel metaModel, String permissionName) {
     Permission permission = new Permission();
     permission.setCanCreate(true);
     permission.setCanRead(true);
@@ -127,14 +253,16 @@ public class PermissionServiceImpl implements PermissionService {
     permission.setCanRemove(true);
     permission.setName(permissionName);
     permission.setObject(metaModel.getFullName());
+    return permission;
+  }
 
-    Permission savedPermission = permissionRepository.save(permission);
-
-    Set<Permission> permissions = new HashSet<>(role.getPermissions());
-    permissions.add(savedPermission);
-    role.setPermissions(permissions);
+  private void assignPermissions(Role role, List<Permission> permissions) {
+    if (role.getPermissions() == null) {
+      role.setPermissions(new HashSet<>());
+    }
+    role.getPermissions().addAll(permissions);
     roleRepository.save(role);
 
-    logger.info("Created permission: {}", permissionName);
+    logger.debug("Assigned {} new permissions to role {}", permissions.size(), role.getName());
   }
 }
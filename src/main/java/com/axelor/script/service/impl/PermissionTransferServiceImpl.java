@@ -0,0 +1,577 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.app.AppSettings;
+import com.axelor.auth.db.Permission;
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.repo.PermissionRepository;
+import com.axelor.auth.db.repo.RoleRepository;
+import com.axelor.db.JPA;
+import com.axelor.meta.db.MetaPermission;
+import com.axelor.meta.db.MetaPermissionRule;
+import com.axelor.meta.db.repo.MetaPermissionRepository;
+import com.axelor.meta.db.repo.MetaPermissionRuleRepository;
+import com.axelor.script.service.PermissionTransferService;
+import com.axelor.script.service.ScriptAuditService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PermissionTransferServiceImpl implements PermissionTransferService {
+
+  private static final Logger logger =
+      LoggerFactory.getLogger(PermissionTransferServiceImpl.class);
+
+  private static final String BATCH_SIZE_KEY = "script.transfer.batch-size";
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+
+  private static final String FORMAT = "axelor-script-permissions";
+  /** 2 added the active flag of meta permissions and the conditions of their rules. */
+  private static final int VERSION = 2;
+
+  private static final String PERMISSIONS = "permissions";
+  private static final String META_PERMISSIONS = "metaPermissions";
+  private static final String RULES = "rules";
+  private static final String ROLE_PERMISSIONS = "rolePermissions";
+  private static final String ROLE_META_PERMISSIONS = "roleMetaPermissions";
+  private static final String ROLES = "roles";
+
+  private static final String ASSIGNED_PERMISSION =
+      "EXISTS (SELECT role.id FROM Role role JOIN role.permissions assigned"
+          + " WHERE assigned = self)";
+  private static final String ASSIGNED_META_PERMISSION =
+      "EXISTS (SELECT role.id FROM Role role JOIN role.metaPermissions assigned"
+          + " WHERE assigned = self)";
+  private static final String ASSIGNED_RULE =
+      "EXISTS (SELECT role.id FROM Role role JOIN role.metaPermissions assigned"
+          + " WHERE assigned = self.metaPermission)";
+
+  private final RoleRepository roleRepository;
+  private final PermissionRepository permissionRepository;
+  private final MetaPermissionRepository metaPermissionRepository;
+  private final MetaPermissionRuleRepository metaPermissionRuleRepository;
+  private final ScriptAuditService auditService;
+  private final EffectivePermissionCache permissionCache;
+
+  private final JsonFactory jsonFactory = new ObjectMapper().getFactory();
+
+  @Inject
+  public PermissionTransferServiceImpl(
+      RoleRepository roleRepository,
+      PermissionRepository permissionRepository,
+      MetaPermissionRepository metaPermissionRepository,
+      MetaPermissionRuleRepository metaPermissionRuleRepository,
+      ScriptAuditService auditService,
+      EffectivePermissionCache permissionCache) {
+    this.roleRepository = roleRepository;
+    this.permissionRepository = permissionRepository;
+    this.metaPermissionRepository = metaPermissionRepository;
+    this.metaPermissionRuleRepository = metaPermissionRuleRepository;
+    this.auditService = auditService;
+    this.permissionCache = permissionCache;
+  }
+
+  @Override
+  public void exportPermissions(OutputStream out) throws IOException {
+    try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+      generator.writeStartObject();
+      generator.writeStringField("format", FORMAT);
+      generator.writeNumberField("version", VERSION);
+
+      generator.writeArrayFieldStart(PERMISSIONS);
+      forEachRow(
+          "SELECT self.id, self.name, self.object, self.canRead, self.canWrite, self.canCreate,"
+              + " self.canRemove, self.canExport, self.condition, self.conditionParams"
+              + " FROM Permission self",
+          "self.id",
+          ASSIGNED_PERMISSION,
+          row -> {
+            generator.writeStartObject();
+            generator.writeStringField("name", (String) row[1]);
+            generator.writeStringField("object", (String) row[2]);
+            writeFlag(generator, "canRead", row[3]);
+            writeFlag(generator, "canWrite", row[4]);
+            writeFlag(generator, "canCreate", row[5]);
+            writeFlag(generator, "canRemove", row[6]);
+            writeFlag(generator, "canExport", row[7]);
+            writeText(generator, "condition", row[8]);
+            writeText(generator, "conditionParams", row[9]);
+            generator.writeEndObject();
+          });
+      generator.writeEndArray();
+
+      generator.writeArrayFieldStart(META_PERMISSIONS);
+      forEachRow(
+          "SELECT self.id, self.name, self.object, self.active FROM MetaPermission self",
+          "self.id",
+          ASSIGNED_META_PERMISSION,
+          row -> {
+            generator.writeStartObject();
+            generator.writeStringField("name", (String) row[1]);
+            generator.writeStringField("object", (String) row[2]);
+            writeFlag(generator, "active", row[3]);
+            generator.writeEndObject();
+          });
+      generator.writeEndArray();
+
+      generator.writeArrayFieldStart(RULES);
+      forEachRow(
+          "SELECT self.id, self.metaPermission.name, self.field, self.canRead, self.canWrite,"
+              + " self.canExport, self.readonlyIf, self.hideIf FROM MetaPermissionRule self",
+          "self.id",
+          ASSIGNED_RULE,
+          row -> {
+            generator.writeStartObject();
+            generator.writeStringField("permission", (String) row[1]);
+            generator.writeStringField("field", (String) row[2]);
+            writeFlag(generator, "canRead", row[3]);
+            writeFlag(generator, "canWrite", row[4]);
+            writeFlag(generator, "canExport", row[5]);
+            writeText(generator, "readonlyIf", row[6]);
+            writeText(generator, "hideIf", row[7]);
+            generator.writeEndObject();
+          });
+      generator.writeEndArray();
+
+      writeRoleLinks(generator, ROLE_PERMISSIONS, "permissions");
+      writeRoleLinks(generator, ROLE_META_PERMISSIONS, "metaPermissions");
+
+      generator.writeEndObject();
+    }
+  }
+
+  @Override
+  public Map<String, Integer> importPermissions(InputStream in) throws IOException {
+    int batchSize = AppSettings.get().getInt(BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE);
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    for (String kind :
+        List.of(PERMISSIONS, META_PERMISSIONS, RULES, ROLE_PERMISSIONS, ROLE_META_PERMISSIONS)) {
+      counts.put(kind, 0);
+    }
+    counts.put(ROLES, 0);
+    Map<String, Long> roleIds = new HashMap<>();
+
+    try (JsonParser parser = jsonFactory.createParser(in)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IllegalArgumentException("Not a permission export file");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String section = parser.getCurrentName();
+        parser.nextToken();
+        switch (section) {
+          case "format":
+            if (!FORMAT.equals(parser.getText())) {
+              throw new IllegalArgumentException("Not a permission export file");
+            }
+            break;
+          case "version":
+            if (parser.getIntValue() > VERSION) {
+              throw new IllegalArgumentException(
+                  "Unsupported permission export version " + parser.getIntValue());
+            }
+            break;
+          case PERMISSIONS:
+            readBatches(parser, batchSize, batch -> upsertPermissions(batch, counts));
+            break;
+          case META_PERMISSIONS:
+            readBatches(parser, batchSize, batch -> upsertMetaPermissions(batch, counts));
+            break;
+          case RULES:
+            readBatches(parser, batchSize, batch -> upsertRules(batch, counts));
+            break;
+          case ROLE_PERMISSIONS:
+            readRoleLinks(parser, batchSize, "permissions", roleIds, counts);
+            break;
+          case ROLE_META_PERMISSIONS:
+            readRoleLinks(parser, batchSize, "metaPermissions", roleIds, counts);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+    }
+
+    permissionCache.invalidateAll();
+    auditService.logSummary("Permissions imported", counts, Collections.emptyList());
+    logger.info("Imported permission set: {}", counts);
+    return counts;
+  }
+
+  private interface RowWriter {
+    void write(Object[] row) throws IOException;
+  }
+
+  private interface BatchLoader {
+    void load(List<JsonNode> batch);
+  }
+
+  /**
+   * Pages through the rows of the query in key order, so that only one page is held in memory.
+   * The key must be the first selected column.
+   */
+  private void forEachRow(String select, String key, String filter, RowWriter writer)
+      throws IOException {
+    int pageSize = AppSettings.get().getInt(BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE);
+    String query =
+        String.format("%s WHERE (%s) AND %s > :lastId ORDER BY %s", select, filter, key, key);
+
+    long lastId = 0;
+    while (true) {
+      List<Object[]> page =
+          JPA.em()
+              .createQuery(query, Object[].class)
+              .setParameter("lastId", lastId)
+              .setMaxResults(pageSize)
+              .getResultList();
+      for (Object[] row : page) {
+        writer.write(row);
+      }
+      if (page.size() < pageSize) {
+        return;
+      }
+      lastId = (Long) page.get(page.size() - 1)[0];
+    }
+  }
+
+  private void writeRoleLinks(JsonGenerator generator, String section, String collection)
+      throws IOException {
+    List<Object[]> roles =
+        JPA.em()
+            .createQuery(
+                "SELECT DISTINCT self.id, self.name FROM Role self JOIN self."
+                    + collection
+                    + " assigned ORDER BY self.id",
+                Object[].class)
+            .getResultList();
+
+    generator.writeArrayFieldStart(section);
+    for (Object[] role : roles) {
+      generator.writeStartObject();
+      generator.writeStringField("role", (String) role[1]);
+      generator.writeArrayFieldStart("permissions");
+      forEachRow(
+          "SELECT assigned.id, assigned.name FROM Role self JOIN self." + collection + " assigned",
+          "assigned.id",
+          "self.id = " + role[0],
+          row -> generator.writeString((String) row[1]));
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+  }
+
+  private void writeFlag(JsonGenerator generator, String name, Object value) throws IOException {
+    generator.writeBooleanField(name, Boolean.TRUE.equals(value));
+  }
+
+  private void writeText(JsonGenerator generator, String name, Object value) throws IOException {
+    if (value != null) {
+      generator.writeStringField(name, (String) value);
+    }
+  }
+
+  /** Reads the objects of the current array and hands them over in batches. */
+  private void readBatches(JsonParser parser, int batchSize, BatchLoader loader)
+      throws IOException {
+    List<JsonNode> batch = new ArrayList<>(batchSize);
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      batch.add(parser.readValueAsTree());
+      if (batch.size() == batchSize) {
+        loadBatch(loader, batch);
+        batch = new ArrayList<>(batchSize);
+      }
+    }
+    if (!batch.isEmpty()) {
+      loadBatch(loader, batch);
+    }
+  }
+
+  private void loadBatch(BatchLoader loader, List<JsonNode> batch) {
+    JPA.runInTransaction(() -> loader.load(batch));
+    JPA.clear();
+  }
+
+  private void upsertPermissions(List<JsonNode> batch, Map<String, Integer> counts) {
+    Map<String, Permission> permissions = new HashMap<>();
+    permissionRepository
+        .all()
+        .filter("self.name IN :names")
+        .bind("names", names(batch, "name"))
+        .fetch()
+        .forEach(permission -> permissions.putIfAbsent(permission.getName(), permission));
+
+    for (JsonNode node : batch) {
+      Permission permission =
+          permissions.computeIfAbsent(node.path("name").asText(), this::newPermission);
+      permission.setObject(node.path("object").asText());
+      permission.setCanRead(node.path("canRead").asBoolean());
+      permission.setCanWrite(node.path("canWrite").asBoolean());
+      permission.setCanCreate(node.path("canCreate").asBoolean());
+      permission.setCanRemove(node.path("canRemove").asBoolean());
+      permission.setCanExport(node.path("canExport").asBoolean());
+      permission.setCondition(node.path("condition").textValue());
+      permission.setConditionParams(node.path("conditionParams").textValue());
+      permissionRepository.save(permission);
+    }
+    counts.merge(PERMISSIONS, batch.size(), Integer::sum);
+  }
+
+  private Permission newPermission(String name) {
+    Permission permission = new Permission();
+    permission.setName(name);
+    return permission;
+  }
+
+  private void upsertMetaPermissions(List<JsonNode> batch, Map<String, Integer> counts) {
+    Map<String, MetaPermission> metaPermissions = new HashMap<>();
+    metaPermissionRepository
+        .all()
+        .filter("self.name IN :names")
+        .bind("names", names(batch, "name"))
+        .fetch()
+        .forEach(permission -> metaPermissions.putIfAbsent(permission.getName(), permission));
+
+    for (JsonNode node : batch) {
+      MetaPermission metaPermission =
+          metaPermissions.computeIfAbsent(node.path("name").asText(), this::newMetaPermission);
+      metaPermission.setObject(node.path("object").asText());
+      // files written before the flag was exported only held active permissions
+      metaPermission.setActive(node.path("active").asBoolean(true));
+      metaPermissionRepository.save(metaPermission);
+    }
+    counts.merge(META_PERMISSIONS, batch.size(), Integer::sum);
+  }
+
+  private MetaPermission newMetaPermission(String name) {
+    MetaPermission metaPermission = new MetaPermission();
+    metaPermission.setName(name);
+    return metaPermission;
+  }
+
+  private void upsertRules(List<JsonNode> batch, Map<String, Integer> counts) {
+    Map<String, MetaPermission> metaPermissions = new HashMap<>();
+    JPA.em()
+        .createQuery(
+            "SELECT DISTINCT self FROM MetaPermission self LEFT JOIN FETCH self.rules"
+                + " WHERE self.name IN :names",
+            MetaPermission.class)
+        .setParameter("names", names(batch, "permission"))
+        .getResultList()
+        .forEach(permission -> metaPermissions.putIfAbsent(permission.getName(), permission));
+
+    Map<String, Map<String, MetaPermissionRule>> rulesByPermission = new HashMap<>();
+    int loaded = 0;
+    for (JsonNode node : batch) {
+      String permissionName = node.path("permission").asText();
+      MetaPermission metaPermission = metaPermissions.get(permissionName);
+      if (metaPermission == null) {
+        logger.warn("Skipping rule of unknown meta permission {}", permissionName);
+        continue;
+      }
+      if (metaPermission.getRules() == null) {
+        metaPermission.setRules(new ArrayList<>());
+      }
+
+      Map<String, MetaPermissionRule> rules =
+          rulesByPermission.computeIfAbsent(
+              permissionName,
+              name ->
+                  metaPermission.getRules().stream()
+                      .collect(
+                          Collectors.toMap(
+                              MetaPermissionRule::getField, rule -> rule, (a, b) -> a)));
+      String field = node.path("field").asText();
+      MetaPermissionRule rule = rules.get(field);
+      if (rule == null) {
+        rule = new MetaPermissionRule();
+        rule.setField(field);
+        rule.setMetaPermission(metaPermission);
+        metaPermission.getRules().add(rule);
+        rules.put(field, rule);
+      }
+      rule.setCanRead(node.path("canRead").asBoolean());
+      rule.setCanWrite(node.path("canWrite").asBoolean());
+      rule.setCanExport(node.path("canExport").asBoolean());
+      rule.setReadonlyIf(node.path("readonlyIf").textValue());
+      rule.setHideIf(node.path("hideIf").textValue());
+      metaPermissionRuleRepository.save(rule);
+      loaded++;
+    }
+    counts.merge(RULES, loaded, Integer::sum);
+  }
+
+  private List<String> names(List<JsonNode> batch, String field) {
+    Set<String> names = new LinkedHashSet<>();
+    batch.forEach(node -> names.add(node.path(field).asText()));
+    return new ArrayList<>(names);
+  }
+
+  /**
+   * Reads the role assignments of the current array. The permission names of a role are streamed
+   * in batches too, a role may hold a large part of the set.
+   */
+  private void readRoleLinks(
+      JsonParser parser,
+      int batchSize,
+      String collection,
+      Map<String, Long> roleIds,
+      Map<String, Integer> counts)
+      throws IOException {
+    String section = "permissions".equals(collection) ? ROLE_PERMISSIONS : ROLE_META_PERMISSIONS;
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      Long roleId = null;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if ("role".equals(field)) {
+          roleId = findOrCreateRole(parser.getText(), roleIds, counts);
+        } else if ("permissions".equals(field)) {
+          if (roleId == null) {
+            throw new IllegalArgumentException("Role assignments must start with the role name");
+          }
+          List<String> names = new ArrayList<>(batchSize);
+          while (parser.nextToken() == JsonToken.VALUE_STRING) {
+            names.add(parser.getText());
+            if (names.size() == batchSize) {
+              counts.merge(section, linkBatch(roleId, names, collection), Integer::sum);
+              names = new ArrayList<>(batchSize);
+            }
+          }
+          if (!names.isEmpty()) {
+            counts.merge(section, linkBatch(roleId, names, collection), Integer::sum);
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  private Long findOrCreateRole(
+      String name, Map<String, Long> roleIds, Map<String, Integer> counts) {
+    return roleIds.computeIfAbsent(
+        name,
+        roleName -> {
+          Role role = roleRepository.findByName(roleName);
+          if (role != null) {
+            return role.getId();
+          }
+          JPA.runInTransaction(
+              () -> {
+                Role newRole = new Role();
+                newRole.setName(roleName);
+                roleRepository.save(newRole);
+              });
+          counts.merge(ROLES, 1, Integer::sum);
+          return roleRepository.findByName(roleName).getId();
+        });
+  }
+
+  /**
+   * Adds the missing links between the role and the named permissions with one multi-row insert
+   * on the join table, the role's whole collection is never loaded.
+   *
+   * @return the number of links added
+   */
+  private int linkBatch(Long roleId, List<String> names, String collection) {
+    String entity = "permissions".equals(collection) ? "Permission" : "MetaPermission";
+    int[] linked = new int[1];
+    JPA.runInTransaction(
+        () -> {
+          Map<String, Long> ids = new HashMap<>();
+          for (Object[] row :
+              JPA.em()
+                  .createQuery(
+                      "SELECT self.name, self.id FROM "
+                          + entity
+                          + " self WHERE self.name IN :names",
+                      Object[].class)
+                  .setParameter("names", names)
+                  .getResultList()) {
+            ids.putIfAbsent((String) row[0], (Long) row[1]);
+          }
+          if (ids.size() < new HashSet<>(names).size()) {
+            logger.warn(
+                "Skipping {} unknown {} names of role {}",
+                new HashSet<>(names).size() - ids.size(),
+                entity,
+                roleId);
+          }
+
+          Set<Long> missing = new LinkedHashSet<>(ids.values());
+          if (!missing.isEmpty()) {
+            missing.removeAll(
+                JPA.em()
+                    .createQuery(
+                        "SELECT assigned.id FROM Role self JOIN self."
+                            + collection
+                            + " assigned WHERE self.id = :roleId AND assigned.id IN :ids",
+                        Long.class)
+                    .setParameter("roleId", roleId)
+                    .setParameter("ids", ids.values())
+                    .getResultList());
+          }
+          linked[0] = insertLinks(roleId, missing, collection);
+        });
+    JPA.clear();
+    return linked[0];
+  }
+
+  private int insertLinks(Long roleId, Set<Long> ids, String collection) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    AbstractCollectionPersister persister =
+        (AbstractCollectionPersister)
+            JPA.em()
+                .getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMetamodel()
+                .collectionPersister(Role.class.getName() + "." + collection);
+    String joinTable = persister.getTableName();
+
+    StringJoiner values = new StringJoiner(", ");
+    for (int i = 0; i < ids.size(); i++) {
+      values.add("(:roleId, :id" + i + ")");
+    }
+    NativeQuery<?> insert =
+        JPA.em()
+            .createNativeQuery(
+                String.format(
+                    "INSERT INTO %s (%s, %s) VALUES %s",
+                    joinTable,
+                    persister.getKeyColumnNames()[0],
+                    persister.getElementColumnNames()[0],
+                    values))
+            .unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace(joinTable);
+    insert.setParameter("roleId", roleId);
+    int i = 0;
+    for (Long id : ids) {
+      insert.setParameter("id" + i++, id);
+    }
+    return insert.executeUpdate();
+  }
+}
@@ -0,0 +1,84 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.db.JPA;
+import com.axelor.script.service.ScriptMetricsService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.Session;
+
+/**
+ * Measures the {@link ScriptMetricsService#DB_ROUND_TRIPS} counter from Hibernate session events:
+ * every JDBC statement and every batch executed by a session counts once while a script operation
+ * tracks it. The listener stays registered on the session, it only counts inside a tracking scope,
+ * so statements run by the request or unit of work afterwards are left out.
+ */
+@Singleton
+public class RoundTripCounter {
+
+  private final ScriptMetricsService metricsService;
+
+  private final Map<Session, Listener> listeners =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  @Inject
+  public RoundTripCounter(ScriptMetricsService metricsService) {
+    this.metricsService = metricsService;
+  }
+
+  /** Ends the counting started by {@link RoundTripCounter#track()}. */
+  public interface Tracking extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /**
+   * Counts the statements of the session of the current thread until the returned scope is closed.
+   * Scopes may be nested, the session is counted once.
+   */
+  public Tracking track() {
+    Session session = JPA.em().unwrap(Session.class);
+    Listener listener =
+        listeners.computeIfAbsent(
+            session,
+            key -> {
+              Listener added = new Listener(metricsService);
+              key.addEventListeners(added);
+              return added;
+            });
+    listener.depth++;
+    return () -> listener.depth--;
+  }
+
+  /** A session is used by one thread at a time, the depth needs no synchronization. */
+  private static class Listener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient ScriptMetricsService metricsService;
+    private int depth;
+
+    Listener(ScriptMetricsService metricsService) {
+      this.metricsService = metricsService;
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+      count();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+      count();
+    }
+
+    private void count() {
+      if (depth > 0) {
+        metricsService.increment(ScriptMetricsService.DB_ROUND_TRIPS, 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.auth.AuthUtils;
+import com.axelor.mail.MailConstants;
+import com.axelor.mail.db.MailMessage;
+import com.axelor.mail.db.repo.MailMessageRepository;
+import com.axelor.script.service.ScriptAuditService;
+import com.axelor.studio.db.App;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ScriptAuditServiceImpl implements ScriptAuditService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScriptAuditServiceImpl.class);
+
+  /** Model ids listed in a summary, the others are only counted and bounded by the id range. */
+  private static final int MODEL_ID_SAMPLE_SIZE = 20;
+
+  private final AppRepository appRepository;
+  private final MailMessageRepository mailMessageRepository;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Inject
+  public ScriptAuditServiceImpl(
+      AppRepository appRepository, MailMessageRepository mailMessageRepository) {
+    this.appRepository = appRepository;
+    this.mailMessageRepository = mailMessageRepository;
+  }
+
+  @Override
+  @Transactional
+  public void logSummary(
+      String title, Map<String, ? extends Number> counts, Collection<Long> modelIds) {
+    App app = appRepository.findByCode("script");
+    AppScript appScript = app == null ? null : app.getAppScript();
+    if (appScript == null) {
+      logger.warn("No AppScript to attach the '{}' summary to", title);
+      return;
+    }
+
+    List<Map<String, Object>> tracks = new ArrayList<>();
+    counts.forEach((name, value) -> tracks.add(track(name, String.valueOf(value))));
+    if (modelIds != null && !modelIds.isEmpty()) {
+      List<Long> sortedIds = modelIds.stream().sorted().collect(Collectors.toList());
+      tracks.add(
+          track("modelIdRange", sortedIds.get(0) + " - " + sortedIds.get(sortedIds.size() - 1)));
+      tracks.add(track("modelIds", sample(sortedIds)));
+    }
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("title", title);
+    body.put("tracks", tracks);
+
+    MailMessage message = new MailMessage();
+    message.setRelatedModel(AppScript.class.getName());
+    message.setRelatedId(appScript.getId());
+    message.setRelatedName(app.getName());
+    message.setSubject(title);
+    message.setType(MailConstants.MESSAGE_TYPE_NOTIFICATION);
+    message.setAuthor(AuthUtils.getUser());
+    try {
+      message.setBody(objectMapper.writeValueAsString(body));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to write the audit summary", e);
+    }
+    mailMessageRepository.save(message);
+  }
+
+  private String sample(List<Long> sortedIds) {
+    String sample =
+        sortedIds.stream()
+            .limit(MODEL_ID_SAMPLE_SIZE)
+            .map(String::valueOf)
+            .collect(Collectors.joining(", "));
+    int more = sortedIds.size() - MODEL_ID_SAMPLE_SIZE;
+    return more > 0 ? String.format("%s, ... (%d more)", sample, more) : sample;
+  }
+
+  private Map<String, Object> track(String name, String value) {
+    Map<String, Object> track = new LinkedHashMap<>();
+    track.put("name", name);
+    track.put("title", name);
+    track.put("value", value);
+    return track;
+  }
+}
@@ -0,0 +1,421 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.app.AppSettings;
+import com.axelor.db.JPA;
+import com.axelor.inject.Beans;
+import com.axelor.meta.db.MetaModel;
+import com.axelor.meta.db.repo.MetaModelRepository;
+import com.axelor.script.service.FieldService;
+import com.axelor.script.service.PermissionService;
+import com.axelor.script.service.ScriptAuditService;
+import com.axelor.script.service.ScriptJobService;
+import com.axelor.script.service.ScriptLockService;
+import com.axelor.script.service.TranslationReport;
+import com.axelor.script.service.TranslationService;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppScriptRepository;
+import com.google.common.base.Throwables;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.persist.UnitOfWork;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Singleton
+public class ScriptJobServiceImpl implements ScriptJobService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScriptJobServiceImpl.class);
+
+  private static final String CHUNK_SIZE_KEY = "script.job.chunk-size";
+  private static final int DEFAULT_CHUNK_SIZE = 50;
+  private static final int JOB_MESSAGE_SIZE = 255;
+
+  private final PermissionService permissionService;
+  private final FieldService fieldService;
+  private final TranslationService translationService;
+  private final MetaModelRepository metaModelRepository;
+  private final AppScriptRepository appScriptRepository;
+  private final ScriptAuditService auditService;
+  private final ScriptLockService lockService;
+
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "axelor-script-job");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  @Inject
+  public ScriptJobServiceImpl(
+      PermissionService permissionService,
+      FieldService fieldService,
+      TranslationService translationService,
+      MetaModelRepository metaModelRepository,
+      AppScriptRepository appScriptRepository,
+      ScriptAuditService auditService,
+      ScriptLockService lockService) {
+    this.permissionService = permissionService;
+    this.fieldService = fieldService;
+    this.translationService = translationService;
+    this.metaModelRepository = metaModelRepository;
+    this.appScriptRepository = appScriptRepository;
+    this.auditService = auditService;
+    this.lockService = lockService;
+  }
+
+  @Override
+  public boolean start(AppScript appScript, String jobType) {
+    if (appScript == null || appScript.getId() == null) {
+      throw new IllegalArgumentException("AppScript must be saved before starting a job");
+    }
+    if (!running.compareAndSet(false, true)) {
+      throw new IllegalStateException("A script job is already running");
+    }
+    boolean started = false;
+    try {
+      if (!acquireLease(jobType)) {
+        return false;
+      }
+      try {
+        submit(appScript.getId(), jobType);
+        started = true;
+      } finally {
+        if (!started) {
+          lockService.release(ScriptLockService.GENERATION_LOCK);
+        }
+      }
+      return true;
+    } finally {
+      if (!started) {
+        running.set(false);
+      }
+    }
+  }
+
+  private void submit(Long appScriptId, String jobType) {
+    executor.submit(
+        () -> {
+          UnitOfWork unitOfWork = Beans.get(UnitOfWork.class);
+          unitOfWork.begin();
+          try {
+            run(appScriptId, jobType, () -> true);
+          } finally {
+            try {
+              lockService.release(ScriptLockService.GENERATION_LOCK);
+            } finally {
+              unitOfWork.end();
+              running.set(false);
+            }
+          }
+        });
+  }
+
+  @Override
+  public int runWhile(AppScript appScript, String jobType, BooleanSupplier keepRunning) {
+    if (!running.compareAndSet(false, true)) {
+      return AppScriptRepository.JOB_STATUS_QUEUED;
+    }
+    try {
+      if (!acquireLease(jobType)) {
+        return AppScriptRepository.JOB_STATUS_QUEUED;
+      }
+      try {
+        return run(appScript.getId(), jobType, keepRunning);
+      } finally {
+        lockService.release(ScriptLockService.GENERATION_LOCK);
+      }
+    } finally {
+      running.set(false);
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  private boolean acquireLease(String jobType) {
+    if (lockService.acquire(ScriptLockService.GENERATION_LOCK)) {
+      return true;
+    }
+    logger.info(
+        "Script job {} not started, {} holds the generation lease",
+        jobType,
+        lockService.getOwner(ScriptLockService.GENERATION_LOCK));
+    return false;
+  }
+
+  /**
+   * Runs the job chunk by chunk while the condition holds. When it no longer does, the job is
+   * paused after the last committed chunk and resumes from there on its next run.
+   *
+   * @return the final status of the job
+   */
+  private int run(Long appScriptId, String jobType, BooleanSupplier keepRunning) {
+    if (AppScriptRepository.JOB_TYPE_TRANSLATION.equals(jobType)) {
+      return runTranslation(appScriptId, keepRunning);
+    }
+
+    AppScript appScript = appScriptRepository.find(appScriptId);
+    long checkpoint = getResumeCheckpoint(appScript, jobType);
+    // a resumed job keeps the start of its first run, changes made since then are not covered
+    LocalDateTime startedOn =
+        checkpoint == 0 ? LocalDateTime.now() : appScript.getJobStartedOnDateT();
+
+    List<Long> allModelIds = fetchModelIds(appScriptId, jobType);
+    List<Long> modelIds =
+        allModelIds.stream().filter(id -> id > checkpoint).collect(Collectors.toList());
+    int total = allModelIds.size();
+    int done = total - modelIds.size();
+    int chunkSize = AppSettings.get().getInt(CHUNK_SIZE_KEY, DEFAULT_CHUNK_SIZE);
+    Map<String, Long> counts = new TreeMap<>();
+
+    logger.info(
+        "Starting {} job: {} models to process, resuming after model id {}",
+        jobType,
+        modelIds.size(),
+        checkpoint);
+    JPA.runInTransaction(
+        () -> {
+          appScriptRepository.find(appScriptId).setJobStartedOnDateT(startedOn);
+          saveJobState(
+              appScriptId,
+              jobType,
+              AppScriptRepository.JOB_STATUS_RUNNING,
+              checkpoint,
+              done,
+              total);
+        });
+
+    try {
+      for (int from = 0; from < modelIds.size(); from += chunkSize) {
+        if (!keepRunning.getAsBoolean()) {
+          long pausedAt = from == 0 ? checkpoint : modelIds.get(from - 1);
+          updateJob(
+              appScriptId,
+              jobType,
+              AppScriptRepository.JOB_STATUS_PAUSED,
+              pausedAt,
+              done + from,
+              total);
+          logger.info("Paused {} job after model id {}", jobType, pausedAt);
+          return AppScriptRepository.JOB_STATUS_PAUSED;
+        }
+
+        List<Long> chunk = modelIds.subList(from, Math.min(from + chunkSize, modelIds.size()));
+        int processed = done + from + chunk.size();
+
+        Long lastId = chunk.get(chunk.size() - 1);
+        if (AppScriptRepository.JOB_TYPE_FIELD.equals(jobType)) {
+          // rule generation manages its own transactions, one per role slice when it runs in
+          // parallel, each renews the lease before committing, and only brings rules in line so
+          // a chunk replayed on resume is harmless
+          renewLease();
+          processChunk(jobType, chunk, counts);
+          updateJob(
+              appScriptId,
+              jobType,
+              AppScriptRepository.JOB_STATUS_RUNNING,
+              lastId,
+              processed,
+              total);
+        } else {
+          JPA.runInTransaction(
+              () -> {
+                processChunk(jobType, chunk, counts);
+                saveJobState(
+                    appScriptId,
+                    jobType,
+                    AppScriptRepository.JOB_STATUS_RUNNING,
+                    lastId,
+                    processed,
+                    total);
+              });
+        }
+        JPA.clear();
+      }
+      updateJob(appScriptId, jobType, AppScriptRepository.JOB_STATUS_DONE, 0L, total, total);
+      if (startedOn != null) {
+        JPA.runInTransaction(() -> saveWatermark(appScriptId, jobType, startedOn));
+      } else {
+        logger.warn("{} job resumed without its start date, the watermark is not updated", jobType);
+      }
+      logSummary(jobType, counts, modelIds);
+      logger.info("Finished {} job", jobType);
+      return AppScriptRepository.JOB_STATUS_DONE;
+    } catch (Exception e) {
+      logger.error("Script job {} failed", jobType, e);
+      JPA.clear();
+      failJob(appScriptId, e);
+      return AppScriptRepository.JOB_STATUS_FAILED;
+    }
+  }
+
+  /**
+   * Translation keeps its own checkpoint and stops between two committed pages. The lease is
+   * renewed before each page, a node that lost it stops before translating another one.
+   */
+  private int runTranslation(Long appScriptId, BooleanSupplier keepRunning) {
+    String jobType = AppScriptRepository.JOB_TYPE_TRANSLATION;
+    updateJob(appScriptId, jobType, AppScriptRepository.JOB_STATUS_RUNNING, 0L, 0, 1);
+    try {
+      TranslationReport report =
+          translationService.translateMissing(
+              () -> {
+                renewLease();
+                return keepRunning.getAsBoolean();
+              });
+      int status =
+          report.isPaused()
+              ? AppScriptRepository.JOB_STATUS_PAUSED
+              : AppScriptRepository.JOB_STATUS_DONE;
+      JPA.runInTransaction(
+          () -> {
+            renewLease();
+            AppScript appScript = appScriptRepository.find(appScriptId);
+            appScript.setJobStatusSelect(status);
+            appScript.setJobProgress(report.isPaused() ? 0 : 100);
+            appScript.setJobMessage(report.toString());
+            appScriptRepository.save(appScript);
+          });
+      return status;
+    } catch (Exception e) {
+      logger.error("Script job {} failed", jobType, e);
+      JPA.clear();
+      failJob(appScriptId, e);
+      return AppScriptRepository.JOB_STATUS_FAILED;
+    }
+  }
+
+  private long getResumeCheckpoint(AppScript appScript, String jobType) {
+    boolean resumable =
+        jobType.equals(appScript.getJobTypeSelect())
+            && appScript.getJobStatusSelect() != AppScriptRepository.JOB_STATUS_DONE
+            && appScript.getJobCheckpoint() != null;
+    return resumable ? appScript.getJobCheckpoint() : 0L;
+  }
+
+  private List<Long> fetchModelIds(Long appScriptId, String jobType) {
+    if (AppScriptRepository.JOB_TYPE_PERMISSION.equals(jobType)) {
+      return JPA.em()
+          .createQuery(
+              "SELECT model.id FROM AppScript self JOIN self.model model "
+                  + "WHERE self.id = :id AND model.generate = true ORDER BY model.id",
+              Long.class)
+          .setParameter("id", appScriptId)
+          .getResultList();
+    }
+    return JPA.em()
+        .createQuery("SELECT self.id FROM MetaModel self ORDER BY self.id", Long.class)
+        .getResultList();
+  }
+
+  /** Processes the models and adds the counts of the chunk to those of the run. */
+  private void processChunk(String jobType, List<Long> modelIds, Map<String, Long> counts) {
+    List<MetaModel> models =
+        metaModelRepository
+            .all()
+            .filter("self.id IN :ids")
+            .bind("ids", modelIds)
+            .order("id")
+            .fetch();
+
+    Map<String, Integer> statistics =
+        AppScriptRepository.JOB_TYPE_PERMISSION.equals(jobType)
+            ? permissionService.generateMetaPermissions(models)
+            : fieldService.generateMetaPermissionRules(models, this::renewLease);
+    statistics.forEach((name, value) -> counts.merge(name, value.longValue(), Long::sum));
+  }
+
+  private void updateJob(
+      Long appScriptId, String jobType, int status, Long checkpoint, int done, int total) {
+    JPA.runInTransaction(() -> saveJobState(appScriptId, jobType, status, checkpoint, done, total));
+  }
+
+  /**
+   * Renews the lease in the transaction of the chunk, a node that lost it to another one rolls the
+   * chunk back instead of committing over the new holder's work.
+   */
+  private void saveJobState(
+      Long appScriptId, String jobType, int status, Long checkpoint, int done, int total) {
+    renewLease();
+    AppScript appScript = appScriptRepository.find(appScriptId);
+    appScript.setJobTypeSelect(jobType);
+    appScript.setJobStatusSelect(status);
+    appScript.setJobCheckpoint(checkpoint);
+    appScript.setJobProgress(total == 0 ? 100 : done * 100 / total);
+    appScript.setJobMessage(
+        String.format("%d / %d models on %s", done, total, lockService.getNodeId()));
+    appScriptRepository.save(appScript);
+  }
+
+  private void renewLease() {
+    if (!lockService.renew(ScriptLockService.GENERATION_LOCK)) {
+      throw new IllegalStateException(
+          "The generation lease was taken over by "
+              + lockService.getOwner(ScriptLockService.GENERATION_LOCK));
+    }
+  }
+
+  /**
+   * A complete run is the new baseline of the incremental generation, as of the start of its first
+   * run when it was paused and resumed.
+   */
+  private void saveWatermark(Long appScriptId, String jobType, LocalDateTime startedOn) {
+    AppScript appScript = appScriptRepository.find(appScriptId);
+    if (AppScriptRepository.JOB_TYPE_PERMISSION.equals(jobType)) {
+      appScript.setLastPermissionGenerationDateT(startedOn);
+    } else {
+      appScript.setLastFieldGenerationDateT(startedOn);
+    }
+    appScriptRepository.save(appScript);
+  }
+
+  /**
+   * Generated permissions and rules carry no tracking, the counts of the run are recorded once on
+   * the app instead. They only cover the chunks of this run, not other concurrent activity.
+   */
+  private void logSummary(String jobType, Map<String, Long> runCounts, List<Long> modelIds) {
+    Map<String, Long> counts = new LinkedHashMap<>();
+    counts.put("models", (long) modelIds.size());
+    counts.putAll(runCounts);
+    JPA.runInTransaction(
+        () -> auditService.logSummary(String.format("Script %s job", jobType), counts, modelIds));
+  }
+
+  /**
+   * Message of the root cause, wrappers often carry none, and the class name when the cause has no
+   * message either, as with a NullPointerException.
+   */
+  private String describe(Exception e) {
+    Throwable cause = Throwables.getRootCause(e);
+    String message = cause.getMessage();
+    if (message == null || message.isBlank()) {
+      return cause.getClass().getName();
+    }
+    message = cause.getClass().getSimpleName() + ": " + message;
+    return message.length() > JOB_MESSAGE_SIZE ? message.substring(0, JOB_MESSAGE_SIZE) : message;
+  }
+
+  private void failJob(Long appScriptId, Exception e) {
+    JPA.runInTransaction(
+        () -> {
+          AppScript appScript = appScriptRepository.find(appScriptId);
+          appScript.setJobStatusSelect(AppScriptRepository.JOB_STATUS_FAILED);
+          appScript.setJobMessage(describe(e));
+          appScriptRepository.save(appScript);
+        });
+  }
+}
@@ -0,0 +1,148 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.app.AppSettings;
+import com.axelor.db.JPA;
+import com.axelor.script.db.ScriptLock;
+import com.axelor.script.db.repo.ScriptLockRepository;
+import com.axelor.script.service.ScriptLockService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Singleton
+public class ScriptLockServiceImpl implements ScriptLockService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScriptLockServiceImpl.class);
+
+  private static final String LEASE_SECONDS_KEY = "script.job.lease-seconds";
+  private static final int DEFAULT_LEASE_SECONDS = 300;
+
+  private static final String TAKE_LEASE =
+      "UPDATE ScriptLock self SET self.owner = :owner, self.expiresOn = :expiresOn"
+          + " WHERE self.name = :name"
+          + " AND (self.owner IS NULL OR self.owner = :owner OR self.expiresOn < :now)";
+  private static final String RENEW_LEASE =
+      "UPDATE ScriptLock self SET self.expiresOn = :expiresOn"
+          + " WHERE self.name = :name AND self.owner = :owner";
+  private static final String RELEASE_LEASE =
+      "UPDATE ScriptLock self SET self.owner = NULL, self.expiresOn = NULL"
+          + " WHERE self.name = :name AND self.owner = :owner";
+
+  private final ScriptLockRepository scriptLockRepository;
+
+  private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+  private final int leaseSeconds;
+
+  @Inject
+  public ScriptLockServiceImpl(ScriptLockRepository scriptLockRepository) {
+    this.scriptLockRepository = scriptLockRepository;
+    this.leaseSeconds =
+        Math.max(1, AppSettings.get().getInt(LEASE_SECONDS_KEY, DEFAULT_LEASE_SECONDS));
+  }
+
+  @Override
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  @Override
+  public boolean acquire(String name) {
+    requireNoTransaction(name);
+    createLockRow(name);
+
+    LocalDateTime now = LocalDateTime.now();
+    int[] updated = new int[1];
+    JPA.runInTransaction(
+        () ->
+            updated[0] =
+                JPA.em()
+                    .createQuery(TAKE_LEASE)
+                    .setParameter("owner", nodeId)
+                    .setParameter("expiresOn", now.plusSeconds(leaseSeconds))
+                    .setParameter("name", name)
+                    .setParameter("now", now)
+                    .executeUpdate());
+
+    logger.info(
+        updated[0] == 1 ? "Lease {} taken by {}" : "Lease {} not available to {}", name, nodeId);
+    return updated[0] == 1;
+  }
+
+  @Override
+  public boolean renew(String name) {
+    int[] updated = new int[1];
+    JPA.runInTransaction(
+        () ->
+            updated[0] =
+                JPA.em()
+                    .createQuery(RENEW_LEASE)
+                    .setParameter("expiresOn", LocalDateTime.now().plusSeconds(leaseSeconds))
+                    .setParameter("name", name)
+                    .setParameter("owner", nodeId)
+                    .executeUpdate());
+    return updated[0] == 1;
+  }
+
+  @Override
+  public void release(String name) {
+    requireNoTransaction(name);
+    JPA.runInTransaction(
+        () ->
+            JPA.em()
+                .createQuery(RELEASE_LEASE)
+                .setParameter("name", name)
+                .setParameter("owner", nodeId)
+                .executeUpdate());
+    logger.info("Lease {} released by {}", name, nodeId);
+  }
+
+  @Override
+  public String getOwner(String name) {
+    ScriptLock lock = findLock(name);
+    if (lock == null
+        || lock.getExpiresOn() == null
+        || lock.getExpiresOn().isBefore(LocalDateTime.now())) {
+      return null;
+    }
+    return lock.getOwner();
+  }
+
+  /**
+   * Taking or releasing a lease in the caller's transaction would keep the row locked and the
+   * change invisible to the other nodes until that transaction ends.
+   */
+  private void requireNoTransaction(String name) {
+    if (JPA.em().getTransaction().isActive()) {
+      throw new IllegalStateException(
+          "Lease " + name + " must be taken and released outside of any transaction");
+    }
+  }
+
+  private ScriptLock findLock(String name) {
+    return scriptLockRepository.all().filter("self.name = :name").bind("name", name).fetchOne();
+  }
+
+  /**
+   * The lock row is created on first use. When two nodes create it at the same time, the unique
+   * name rejects the second insert and both go on with the conditional update.
+   */
+  private void createLockRow(String name) {
+    if (findLock(name) != null) {
+      return;
+    }
+    try {
+      JPA.runInTransaction(
+          () -> {
+            ScriptLock lock = new ScriptLock();
+            lock.setName(name);
+            scriptLockRepository.save(lock);
+          });
+    } catch (RuntimeException e) {
+      logger.debug("Lock row {} created by another node", name, e);
+      JPA.clear();
+    }
+  }
+}
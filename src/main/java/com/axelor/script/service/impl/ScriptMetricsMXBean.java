@@ -0,0 +1,15 @@
+package com.axelor.script.service.impl;
+
+import java.util.Map;
+
+/** JMX view of the script metrics, registered as {@code com.axelor.script:type=Metrics}. */
+public interface ScriptMetricsMXBean {
+
+  Map<String, Long> getCounters();
+
+  Map<String, Map<String, Double>> getTimers();
+
+  String getSummary();
+
+  void reset();
+}
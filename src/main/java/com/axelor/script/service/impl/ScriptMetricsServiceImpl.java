@@ -0,0 +1,137 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.script.service.ScriptMetricsService;
+import com.google.inject.Singleton;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Singleton
+public class ScriptMetricsServiceImpl implements ScriptMetricsService, ScriptMetricsMXBean {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScriptMetricsServiceImpl.class);
+
+  private static final String OBJECT_NAME = "com.axelor.script:type=Metrics";
+
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+  public ScriptMetricsServiceImpl() {
+    register();
+  }
+
+  @Override
+  public void increment(String counter, long delta) {
+    counters.computeIfAbsent(counter, key -> new LongAdder()).add(delta);
+  }
+
+  @Override
+  public void recordTime(String timer, long nanos) {
+    timers.computeIfAbsent(timer, key -> new Timer()).record(nanos);
+  }
+
+  @Override
+  public Map<String, Long> getCounters() {
+    Map<String, Long> values = new TreeMap<>();
+    counters.forEach((name, value) -> values.put(name, value.sum()));
+    return values;
+  }
+
+  @Override
+  public Map<String, Map<String, Double>> getTimers() {
+    Map<String, Map<String, Double>> values = new TreeMap<>();
+    timers.forEach((name, timer) -> values.put(name, timer.snapshot()));
+    return values;
+  }
+
+  @Override
+  public String getSummary() {
+    StringBuilder summary = new StringBuilder();
+    getCounters().forEach((name, value) -> summary.append(String.format("%s: %d%n", name, value)));
+    getTimers()
+        .forEach(
+            (name, values) ->
+                summary.append(
+                    String.format(
+                        "%s: count=%.0f, mean=%.1f, p50=%.1f, p95=%.1f, p99=%.1f, max=%.1f ms%n",
+                        name,
+                        values.get("count"),
+                        values.get("mean"),
+                        values.get("p50"),
+                        values.get("p95"),
+                        values.get("p99"),
+                        values.get("max"))));
+    return summary.toString();
+  }
+
+  @Override
+  public void reset() {
+    counters.clear();
+    timers.clear();
+  }
+
+  private void register() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(this, name);
+    } catch (JMException e) {
+      logger.warn("Unable to register {} in JMX", OBJECT_NAME, e);
+    }
+  }
+
+  /** Keeps totals and a ring of the latest samples to estimate percentiles. */
+  private static final class Timer {
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private final long[] samples = new long[SAMPLE_SIZE];
+
+    void record(long nanos) {
+      long index = count.getAndIncrement();
+      total.add(nanos);
+      max.accumulateAndGet(nanos, Math::max);
+      samples[(int) (index % SAMPLE_SIZE)] = nanos;
+    }
+
+    Map<String, Double> snapshot() {
+      long recorded = count.get();
+      long[] sorted = Arrays.copyOf(samples, (int) Math.min(recorded, SAMPLE_SIZE));
+      Arrays.sort(sorted);
+
+      Map<String, Double> values = new LinkedHashMap<>();
+      values.put("count", (double) recorded);
+      values.put("mean", recorded == 0 ? 0 : total.sum() / (double) recorded / NANOS_PER_MILLI);
+      values.put("p50", percentile(sorted, 0.50));
+      values.put("p95", percentile(sorted, 0.95));
+      values.put("p99", percentile(sorted, 0.99));
+      values.put("max", max.get() / NANOS_PER_MILLI);
+      return values;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(quantile * sorted.length) - 1;
+      return sorted[Math.max(0, index)] / NANOS_PER_MILLI;
+    }
+  }
+}
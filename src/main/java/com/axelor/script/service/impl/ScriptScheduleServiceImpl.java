@@ -0,0 +1,128 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.db.JPA;
+import com.axelor.script.service.ScriptJobService;
+import com.axelor.script.service.ScriptScheduleService;
+import com.axelor.studio.db.App;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppRepository;
+import com.axelor.studio.db.repo.AppScriptRepository;
+import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ScriptScheduleServiceImpl implements ScriptScheduleService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScriptScheduleServiceImpl.class);
+
+  private static final String QUEUE_SEPARATOR = ",";
+
+  private final ScriptJobService scriptJobService;
+  private final AppRepository appRepository;
+  private final AppScriptRepository appScriptRepository;
+
+  @Inject
+  public ScriptScheduleServiceImpl(
+      ScriptJobService scriptJobService,
+      AppRepository appRepository,
+      AppScriptRepository appScriptRepository) {
+    this.scriptJobService = scriptJobService;
+    this.appRepository = appRepository;
+    this.appScriptRepository = appScriptRepository;
+  }
+
+  @Override
+  @Transactional
+  public void enqueue(AppScript appScript, String jobType) {
+    appScript = appScriptRepository.find(appScript.getId());
+    List<String> queue = getQueue(appScript);
+    if (queue.contains(jobType)) {
+      return;
+    }
+    queue.add(jobType);
+    appScript.setJobQueue(String.join(QUEUE_SEPARATOR, queue));
+    if (!scriptJobService.isRunning()
+        && appScript.getJobStatusSelect() != AppScriptRepository.JOB_STATUS_PAUSED) {
+      appScript.setJobStatusSelect(AppScriptRepository.JOB_STATUS_QUEUED);
+    }
+    appScriptRepository.save(appScript);
+  }
+
+  @Override
+  public boolean isOffPeak(AppScript appScript, LocalTime time) {
+    LocalTime start = appScript.getChatLimit();
+    LocalTime end = appScript.getOffPeakEnd();
+    if (start == null || end == null) {
+      return false;
+    }
+    if (start.isBefore(end)) {
+      return !time.isBefore(start) && time.isBefore(end);
+    }
+    return !time.isBefore(start) || time.isBefore(end);
+  }
+
+  @Override
+  public void runQueue() {
+    AppScript appScript = findAppScript();
+    Long appScriptId = appScript.getId();
+    if (appScript.getChatLimit() == null || appScript.getOffPeakEnd() == null) {
+      if (!getQueue(appScript).isEmpty()) {
+        logger.warn("Script jobs are queued but no off-peak window is configured");
+      }
+      return;
+    }
+
+    List<String> queue;
+    while (!(queue = getQueue(appScript)).isEmpty() && isOffPeak(appScript, LocalTime.now())) {
+      String jobType = queue.get(0);
+      AppScript window = appScript;
+      int status =
+          scriptJobService.runWhile(
+              appScript, jobType, () -> isOffPeak(window, LocalTime.now()));
+      JPA.clear();
+      appScript = appScriptRepository.find(appScriptId);
+
+      if (status == AppScriptRepository.JOB_STATUS_QUEUED
+          || status == AppScriptRepository.JOB_STATUS_PAUSED) {
+        logger.info("Script job {} stays queued with status {}", jobType, status);
+        return;
+      }
+      // a failed job leaves the queue too, its error stays on the job panel
+      removeFromQueue(appScriptId, jobType);
+      appScript = appScriptRepository.find(appScriptId);
+    }
+  }
+
+  private void removeFromQueue(Long appScriptId, String jobType) {
+    JPA.runInTransaction(
+        () -> {
+          AppScript appScript = appScriptRepository.find(appScriptId);
+          List<String> queue = getQueue(appScript);
+          queue.remove(jobType);
+          appScript.setJobQueue(queue.isEmpty() ? null : String.join(QUEUE_SEPARATOR, queue));
+          appScriptRepository.save(appScript);
+        });
+  }
+
+  private List<String> getQueue(AppScript appScript) {
+    String queue = appScript.getJobQueue();
+    if (queue == null || queue.isEmpty()) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(Arrays.asList(queue.split(QUEUE_SEPARATOR)));
+  }
+
+  private AppScript findAppScript() {
+    App app =
+        Optional.ofNullable(appRepository.findByCode("script"))
+            .orElseThrow(() -> new IllegalStateException("App with code 'script' not found"));
+    return Optional.ofNullable(app.getAppScript())
+        .orElseThrow(() -> new IllegalStateException("AppScript for app 'script' is not set"));
+  }
+}
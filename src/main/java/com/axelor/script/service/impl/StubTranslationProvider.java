@@ -0,0 +1,49 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.app.AppSettings;
+import com.axelor.script.service.TranslationProvider;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Offline provider simulating a remote service: every request waits for the configured latency
+ * and returns each line of the text prefixed with the target language. Used to measure the
+ * throughput of the translation pipeline without network access.
+ */
+@Singleton
+public class StubTranslationProvider implements TranslationProvider {
+
+  private static final String LATENCY_KEY = "script.translation.stub.latency-ms";
+  private static final String JITTER_KEY = "script.translation.stub.jitter-ms";
+
+  private final int latency;
+  private final int jitter;
+
+  public StubTranslationProvider() {
+    AppSettings settings = AppSettings.get();
+    this.latency = Math.max(0, settings.getInt(LATENCY_KEY, 100));
+    this.jitter = Math.max(0, settings.getInt(JITTER_KEY, 0));
+  }
+
+  @Override
+  public String translate(String from, String to, String text) throws IOException {
+    try {
+      Thread.sleep(latency + (jitter > 0 ? ThreadLocalRandom.current().nextInt(jitter) : 0));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Stub translation interrupted");
+    }
+    return Arrays.stream(text.split("\n", -1))
+        .map(line -> "[" + to + "] " + line)
+        .collect(Collectors.joining("\n"));
+  }
+
+  @Override
+  public boolean supportsPacking() {
+    return true;
+  }
+}
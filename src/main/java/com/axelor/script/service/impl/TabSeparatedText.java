@@ -0,0 +1,29 @@
+package com.axelor.script.service.impl;
+
+/**
+ * Escaping of the texts stored in the tab-separated translation files, the translation memory and
+ * the local dictionary. Tabs, line breaks and backslashes are written as {@code \t}, {@code \n}
+ * and {@code \\}, so that an entry always fits on one line.
+ */
+final class TabSeparatedText {
+
+  private TabSeparatedText() {}
+
+  static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+  }
+
+  static String unescape(String value) {
+    StringBuilder builder = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' && i + 1 < value.length()) {
+        char next = value.charAt(++i);
+        builder.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+      } else {
+        builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+}
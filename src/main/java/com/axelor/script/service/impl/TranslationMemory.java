@@ -0,0 +1,245 @@
+package com.axelor.script.service.impl;
+
+import static com.axelor.script.service.impl.TabSeparatedText.escape;
+import static com.axelor.script.service.impl.TabSeparatedText.unescape;
+
+import com.axelor.app.AppSettings;
+import com.google.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Two-tier cache of translations keyed by source language, target language and normalized text.
+ *
+ * <p>The first tier is a bounded in-memory LRU map. The second tier is an append-only file, one
+ * tab-separated entry per line, so that translations survive restarts. Only the keys of the file
+ * and the offset of their line are kept in memory, translations are read from the file when
+ * needed. Reads are positional and run concurrently, only appends are serialized.
+ */
+@Singleton
+public class TranslationMemory {
+
+  private static final Logger logger = LoggerFactory.getLogger(TranslationMemory.class);
+
+  private static final String SIZE_KEY = "script.translation.memory.size";
+  private static final String FILE_KEY = "script.translation.memory.file";
+  private static final String DEFAULT_FILE = "axelor-script/translation-memory.tsv";
+
+  private static final char SEPARATOR = '\t';
+  private static final int READ_BUFFER_SIZE = 256;
+
+  private final Map<String, String> entries;
+  private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+  private final Object appendLock = new Object();
+  private final FileChannel file;
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public TranslationMemory() {
+    this(Math.max(1, AppSettings.get().getInt(SIZE_KEY, 10000)), getPath(AppSettings.get()));
+  }
+
+  TranslationMemory(int capacity, Path path) {
+    this.entries =
+        new LinkedHashMap<String, String>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > capacity;
+          }
+        };
+    this.file = open(path);
+  }
+
+  public String get(String from, String to, String text) {
+    String key = key(from, to, text);
+
+    String translation;
+    synchronized (entries) {
+      translation = entries.get(key);
+    }
+    if (translation != null) {
+      memoryHits.incrementAndGet();
+      return translation;
+    }
+
+    translation = readFromDisk(key);
+    if (translation != null) {
+      diskHits.incrementAndGet();
+      synchronized (entries) {
+        entries.put(key, translation);
+      }
+      return translation;
+    }
+
+    misses.incrementAndGet();
+    return null;
+  }
+
+  public void put(String from, String to, String text, String translation) {
+    if (translation == null || translation.isEmpty()) {
+      return;
+    }
+    String key = key(from, to, text);
+    synchronized (entries) {
+      entries.put(key, translation);
+    }
+
+    if (file != null && !translation.equals(readFromDisk(key))) {
+      appendToDisk(key, translation);
+    }
+  }
+
+  public Map<String, Long> getStatistics() {
+    Map<String, Long> statistics = new LinkedHashMap<>();
+    statistics.put("memoryHits", memoryHits.get());
+    statistics.put("diskHits", diskHits.get());
+    statistics.put("misses", misses.get());
+    synchronized (entries) {
+      statistics.put("memoryEntries", (long) entries.size());
+    }
+    statistics.put("diskEntries", (long) offsets.size());
+    return statistics;
+  }
+
+  static String normalize(String text) {
+    return text == null ? "" : text.trim().replaceAll("\\s+", " ");
+  }
+
+  private static Path getPath(AppSettings settings) {
+    Path defaultPath =
+        Paths.get(settings.get("data.upload.dir", System.getProperty("java.io.tmpdir")))
+            .resolve(DEFAULT_FILE);
+    return Paths.get(settings.get(FILE_KEY, defaultPath.toString()));
+  }
+
+  private String key(String from, String to, String text) {
+    return escape(from) + SEPARATOR + escape(to) + SEPARATOR + escape(normalize(text));
+  }
+
+  private FileChannel open(Path path) {
+    try {
+      Files.createDirectories(path.getParent());
+      FileChannel channel =
+          FileChannel.open(
+              path,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+      try {
+        index(channel);
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+      logger.info("Translation memory {} opened with {} entries", path, offsets.size());
+      return channel;
+    } catch (IOException e) {
+      logger.error("Unable to open translation memory {}, using memory only", path, e);
+      return null;
+    }
+  }
+
+  /** Records the offset of each line, later lines override earlier ones for the same key. */
+  private void index(FileChannel channel) throws IOException {
+    long offset = 0;
+    long position = 0;
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    // not closed, closing the stream would close the channel
+    InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(0)));
+    int b;
+    while ((b = in.read()) != -1) {
+      position++;
+      if (b != '\n') {
+        line.write(b);
+        continue;
+      }
+      String entry = line.toString(StandardCharsets.UTF_8.name());
+      int split = entry.lastIndexOf(SEPARATOR);
+      if (split > 0) {
+        offsets.put(entry.substring(0, split), offset);
+      }
+      line.reset();
+      offset = position;
+    }
+    if (channel.size() > offset) {
+      logger.warn("Dropping incomplete translation memory entry at offset {}", offset);
+      channel.truncate(offset);
+    }
+  }
+
+  private String readFromDisk(String key) {
+    Long offset = offsets.get(key);
+    if (file == null || offset == null) {
+      return null;
+    }
+    try {
+      String line = readLine(file, offset);
+      return line == null ? null : unescape(line.substring(line.lastIndexOf(SEPARATOR) + 1));
+    } catch (IOException e) {
+      logger.error("Unable to read translation memory entry", e);
+      return null;
+    }
+  }
+
+  /** The offset is published once the line is completely written, so readers never see half. */
+  private void appendToDisk(String key, String translation) {
+    ByteBuffer line =
+        ByteBuffer.wrap(
+            (key + SEPARATOR + escape(translation) + "\n").getBytes(StandardCharsets.UTF_8));
+    synchronized (appendLock) {
+      try {
+        long offset = file.size();
+        long position = offset;
+        while (line.hasRemaining()) {
+          position += file.write(line, position);
+        }
+        offsets.put(key, offset);
+      } catch (IOException e) {
+        logger.error("Unable to append to translation memory", e);
+      }
+    }
+  }
+
+  /**
+   * Reads the UTF-8 line starting at the given offset without moving the channel position, so
+   * that concurrent reads do not interfere. Returns {@code null} at end of file or when the line
+   * was not completely written.
+   */
+  private static String readLine(FileChannel channel, long offset) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    long position = offset;
+    int read;
+    while ((read = channel.read(buffer, position)) > 0) {
+      byte[] chunk = buffer.array();
+      for (int i = 0; i < read; i++) {
+        if (chunk[i] == '\n') {
+          bytes.write(chunk, 0, i);
+          return bytes.toString(StandardCharsets.UTF_8.name());
+        }
+      }
+      bytes.write(chunk, 0, read);
+      position += read;
+      buffer.clear();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,160 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.app.AppSettings;
+import com.axelor.db.JPA;
+import com.axelor.meta.db.MetaTranslation;
+import com.axelor.meta.db.repo.MetaTranslationRepository;
+import com.axelor.script.service.DictionaryService;
+import com.axelor.script.service.TranslationReport;
+import com.axelor.script.service.TranslationService;
+import com.axelor.studio.db.App;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppRepository;
+import com.axelor.studio.db.repo.AppScriptRepository;
+import com.google.inject.Inject;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TranslationServiceImpl implements TranslationService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TranslationServiceImpl.class);
+
+  private static final String PAGE_SIZE_KEY = "script.translation.page-size";
+  private static final int DEFAULT_PAGE_SIZE = 500;
+  private static final String SOURCE_LANGUAGE = "en";
+  private static final String UNTRANSLATED_FILTER = "(self.message IS NULL OR self.message = '')";
+
+  private final DictionaryService dictionaryService;
+  private final MetaTranslationRepository metaTranslationRepository;
+  private final AppRepository appRepository;
+  private final AppScriptRepository appScriptRepository;
+
+  @Inject
+  public TranslationServiceImpl(
+      DictionaryService dictionaryService,
+      MetaTranslationRepository metaTranslationRepository,
+      AppRepository appRepository,
+      AppScriptRepository appScriptRepository) {
+    this.dictionaryService = dictionaryService;
+    this.metaTranslationRepository = metaTranslationRepository;
+    this.appRepository = appRepository;
+    this.appScriptRepository = appScriptRepository;
+  }
+
+  @Override
+  public TranslationReport translateMissing(BooleanSupplier keepRunning) {
+    AppScript appScript = findAppScript();
+    Long appScriptId = appScript.getId();
+    int pageSize = AppSettings.get().getInt(PAGE_SIZE_KEY, DEFAULT_PAGE_SIZE);
+
+    long lastId = Optional.ofNullable(appScript.getTranslationCheckpoint()).orElse(0L);
+    if (lastId > 0) {
+      logger.info("Resuming translation after MetaTranslation id {}", lastId);
+    }
+
+    TranslationReport report = new TranslationReport();
+    List<MetaTranslation> page;
+    while (!(page = fetchPage(lastId, pageSize)).isEmpty()) {
+      if (!keepRunning.getAsBoolean()) {
+        report.setPaused(true);
+        logger.info("Translation paused after MetaTranslation id {}: {}", lastId, report);
+        return report;
+      }
+      Map<String, Map<String, Long>> plan = planPage(page);
+      Map<String, Map<String, String>> messages = translatePlan(plan);
+      long pageLastId = page.get(page.size() - 1).getId();
+      JPA.clear();
+
+      // rows updated, provider calls saved and rows of later pages filled in advance
+      int[] counts = new int[3];
+      JPA.runInTransaction(
+          () -> {
+            messages.forEach(
+                (language, translations) ->
+                    translations.forEach(
+                        (key, message) -> {
+                          int rows = saveMessage(language, key, message);
+                          counts[0] += rows;
+                          counts[1] += Math.max(0, rows - 1);
+                          counts[2] += Math.max(0, rows - plan.get(language).getOrDefault(key, 0L));
+                        }));
+            saveCheckpoint(appScriptId, pageLastId);
+          });
+      JPA.clear();
+
+      report.add(
+          page.size() + counts[2],
+          plan.values().stream().mapToInt(Map::size).sum(),
+          counts[0],
+          counts[1]);
+      lastId = pageLastId;
+      logger.debug("Translated page ending at MetaTranslation id {}", lastId);
+    }
+
+    JPA.runInTransaction(() -> saveCheckpoint(appScriptId, 0L));
+    logger.info("Translation finished: {}", report);
+    return report;
+  }
+
+  private List<MetaTranslation> fetchPage(long lastId, int pageSize) {
+    return metaTranslationRepository
+        .all()
+        .filter(UNTRANSLATED_FILTER + " AND self.id > :lastId")
+        .bind("lastId", lastId)
+        .order("id")
+        .fetch(pageSize);
+  }
+
+  /**
+   * Groups the pending rows by language, keeping each key only once per language with the number
+   * of rows of the page sharing it.
+   */
+  private Map<String, Map<String, Long>> planPage(List<MetaTranslation> page) {
+    return page.stream()
+        .filter(metaTranslation -> metaTranslation.getKey() != null)
+        .collect(
+            Collectors.groupingBy(
+                MetaTranslation::getLanguage,
+                Collectors.groupingBy(MetaTranslation::getKey, Collectors.counting())));
+  }
+
+  private Map<String, Map<String, String>> translatePlan(Map<String, Map<String, Long>> plan) {
+    Map<String, Map<String, String>> messages = new HashMap<>();
+    plan.forEach(
+        (language, keys) ->
+            messages.put(
+                language,
+                dictionaryService.getTranslations(SOURCE_LANGUAGE, language, keys.keySet())));
+    return messages;
+  }
+
+  /** Fans one translation out to every untranslated row with the same language and key. */
+  private int saveMessage(String language, String key, String message) {
+    return metaTranslationRepository
+        .all()
+        .filter(UNTRANSLATED_FILTER + " AND self.language = :language AND self.key = :key")
+        .bind("language", language)
+        .bind("key", key)
+        .update("message", message);
+  }
+
+  private void saveCheckpoint(Long appScriptId, long lastId) {
+    AppScript appScript = appScriptRepository.find(appScriptId);
+    appScript.setTranslationCheckpoint(lastId);
+    appScriptRepository.save(appScript);
+  }
+
+  private AppScript findAppScript() {
+    App app =
+        Optional.ofNullable(appRepository.findByCode("script"))
+            .orElseThrow(() -> new IllegalStateException("App with code 'script' not found"));
+    return Optional.ofNullable(app.getAppScript())
+        .orElseThrow(() -> new IllegalStateException("AppScript for app 'script' is not set"));
+  }
+}
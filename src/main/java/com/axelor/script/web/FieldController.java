@@ -1,33 +1,80 @@
 package com.axelor.script.web;
 
 import com.axelor.apps.base.service.exception.TraceBackService;
-import com.axelor.inject.Beans;
-import com.axelor.meta.db.repo.MetaModelRepository;
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.repo.RoleRepository;
+import com.axelor.meta.db.MetaPermission;
+import com.axelor.meta.db.repo.MetaPermissionRepository;
+import com.axelor.meta.schema.actions.ActionView;
 import com.axelor.rpc.ActionRequest;
 import com.axelor.rpc.ActionResponse;
 import com.axelor.script.service.FieldService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.axelor.script.service.ScriptJobService;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppScriptRepository;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import com.google.inject.persist.Transactional;
 
 @Singleton
 public class FieldController {
 
+  private final ScriptJobService scriptJobService;
   private final FieldService fieldService;
-  private final ObjectMapper objectMapper;
+  private final RoleRepository roleRepository;
+  private final MetaPermissionRepository metaPermissionRepository;
 
   @Inject
-  public FieldController(FieldService fieldService, ObjectMapper objectMapper) {
+  public FieldController(
+      ScriptJobService scriptJobService,
+      FieldService fieldService,
+      RoleRepository roleRepository,
+      MetaPermissionRepository metaPermissionRepository) {
+    this.scriptJobService = scriptJobService;
     this.fieldService = fieldService;
-    this.objectMapper = objectMapper;
+    this.roleRepository = roleRepository;
+    this.metaPermissionRepository = metaPermissionRepository;
   }
 
-  @Transactional
   public void generateField(ActionRequest request, ActionResponse response) {
 
     try {
-      fieldService.generateMetaPermissionRules(Beans.get(MetaModelRepository.class).all().fetch());
+      AppScript appScript = request.getContext().asType(AppScript.class);
+      if (scriptJobService.start(appScript, AppScriptRepository.JOB_TYPE_FIELD)) {
+        response.setNotify("Field generation started in background.");
+      } else {
+        response.setNotify(
+            "A generation is already running on another node, showing its progress.");
+      }
+      response.setReload(true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+
+  /**
+   * Replaces the shared permission opened from a role by a copy owned by that role, then opens
+   * the copy so that its rules can be edited without changing the other roles.
+   */
+  public void detachSharedPermission(ActionRequest request, ActionResponse response) {
+    try {
+      Object roleId = request.getContext().get("_roleId");
+      if (roleId == null) {
+        response.setError("Open the permission from a role to customize it.");
+        return;
+      }
+      Role role = roleRepository.find(Long.valueOf(roleId.toString()));
+      MetaPermission metaPermission =
+          metaPermissionRepository.find(request.getContext().asType(MetaPermission.class).getId());
+      MetaPermission copy = fieldService.detachSharedPermission(role, metaPermission);
+
+      response.setView(
+          ActionView.define("Fields")
+              .model(MetaPermission.class.getName())
+              .add("form", "axelor.management.meta-permission.form")
+              .context("_showRecord", copy.getId())
+              .context("_roleId", role.getId())
+              .map());
+      response.setCanClose(true);
     } catch (Exception e) {
       TraceBackService.trace(response, e);
     }
@@ -0,0 +1,27 @@
+package com.axelor.script.web;
+
+import com.axelor.rpc.ActionRequest;
+import com.axelor.rpc.ActionResponse;
+import com.axelor.script.service.ScriptMetricsService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+@Singleton
+public class MetricsController {
+
+  private final ScriptMetricsService metricsService;
+
+  @Inject
+  public MetricsController(ScriptMetricsService metricsService) {
+    this.metricsService = metricsService;
+  }
+
+  public void summary(ActionRequest request, ActionResponse response) {
+    response.setValue("$metricsSummary", metricsService.getSummary());
+  }
+
+  public void reset(ActionRequest request, ActionResponse response) {
+    metricsService.reset();
+    response.setValue("$metricsSummary", metricsService.getSummary());
+  }
+}
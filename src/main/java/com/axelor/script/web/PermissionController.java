@@ -1,27 +1,98 @@
 package com.axelor.script.web;
 
-import com.axelor.meta.db.MetaModel;
+import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.rpc.ActionRequest;
 import com.axelor.rpc.ActionResponse;
+import com.axelor.script.service.IncrementalGenerationService;
+import com.axelor.script.service.PermissionPlan;
+import com.axelor.script.service.PermissionPlanService;
 import com.axelor.script.service.PermissionService;
+import com.axelor.script.service.ScriptJobService;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppScriptRepository;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.persist.Transactional;
-import java.util.List;
+import java.util.Map;
 
 @Singleton
 public class PermissionController {
   private final PermissionService permissionService;
+  private final ScriptJobService scriptJobService;
+  private final IncrementalGenerationService incrementalGenerationService;
+  private final PermissionPlanService permissionPlanService;
 
   @Inject
-  public PermissionController(PermissionService permissionService) {
+  public PermissionController(
+      PermissionService permissionService,
+      ScriptJobService scriptJobService,
+      IncrementalGenerationService incrementalGenerationService,
+      PermissionPlanService permissionPlanService) {
     this.permissionService = permissionService;
+    this.scriptJobService = scriptJobService;
+    this.incrementalGenerationService = incrementalGenerationService;
+    this.permissionPlanService = permissionPlanService;
   }
 
-  @Transactional
   public void generatePermission(ActionRequest request, ActionResponse response) {
-    List<MetaModel> model = (List<MetaModel>) request.getContext().get("model");
-    permissionService.generateMetaPermissions(model);
+    try {
+      AppScript appScript = request.getContext().asType(AppScript.class);
+      if (scriptJobService.start(appScript, AppScriptRepository.JOB_TYPE_PERMISSION)) {
+        response.setNotify("Permission generation started in background.");
+      } else {
+        response.setNotify(
+            "A generation is already running on another node, showing its progress.");
+      }
+      response.setReload(true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+
+  public void regenerateChanges(ActionRequest request, ActionResponse response) {
+    try {
+      AppScript appScript = request.getContext().asType(AppScript.class);
+      response.setNotify(incrementalGenerationService.regenerateChanges(appScript));
+      response.setReload(true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+
+  public void previewPlan(ActionRequest request, ActionResponse response) {
+    try {
+      AppScript appScript = request.getContext().asType(AppScript.class);
+      PermissionPlan plan = permissionPlanService.plan(appScript);
+      response.setValue("$planFingerprint", plan.getFingerprint());
+      response.setInfo(plan.getReport());
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+
+  public void applyPlan(ActionRequest request, ActionResponse response) {
+    try {
+      String fingerprint = (String) request.getContext().get("$planFingerprint");
+      if (fingerprint == null) {
+        response.setError("Preview the changes before applying them.");
+        return;
+      }
+      AppScript appScript = request.getContext().asType(AppScript.class);
+      Map<String, Integer> statistics = permissionPlanService.apply(appScript, fingerprint);
+      response.setNotify(
+          String.format(
+              "%d permissions and %d field rules created, %d field rules deleted",
+              statistics.get("permissionInserts"),
+              statistics.get("ruleInserts"),
+              statistics.get("ruleDeletes")));
+      response.setReload(true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+
+  public void refreshJob(ActionRequest request, ActionResponse response) {
+    response.setReload(true);
   }
 
   @Transactional
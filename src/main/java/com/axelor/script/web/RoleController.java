@@ -0,0 +1,130 @@
+package com.axelor.script.web;
+
+import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.repo.PermissionRepository;
+import com.axelor.auth.db.repo.RoleRepository;
+import com.axelor.db.JPA;
+import com.axelor.meta.db.repo.MetaPermissionRepository;
+import com.axelor.rpc.ActionRequest;
+import com.axelor.rpc.ActionResponse;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Links and unlinks the permissions selected on the role form. The collections of a role are only
+ * shown through dashlets, which are refreshed afterwards.
+ */
+@Singleton
+public class RoleController {
+
+  private static final String SELECTED_PERMISSIONS = "$selectedPermissions";
+  private static final String SELECTED_META_PERMISSIONS = "$selectedMetaPermissions";
+
+  private final RoleRepository roleRepository;
+  private final PermissionRepository permissionRepository;
+  private final MetaPermissionRepository metaPermissionRepository;
+
+  @Inject
+  public RoleController(
+      RoleRepository roleRepository,
+      PermissionRepository permissionRepository,
+      MetaPermissionRepository metaPermissionRepository) {
+    this.roleRepository = roleRepository;
+    this.permissionRepository = permissionRepository;
+    this.metaPermissionRepository = metaPermissionRepository;
+  }
+
+  public void addPermissions(ActionRequest request, ActionResponse response) {
+    updatePermissions(request, response, true);
+  }
+
+  public void removePermissions(ActionRequest request, ActionResponse response) {
+    updatePermissions(request, response, false);
+  }
+
+  public void addMetaPermissions(ActionRequest request, ActionResponse response) {
+    updateMetaPermissions(request, response, true);
+  }
+
+  public void removeMetaPermissions(ActionRequest request, ActionResponse response) {
+    updateMetaPermissions(request, response, false);
+  }
+
+  private void updatePermissions(ActionRequest request, ActionResponse response, boolean add) {
+    try {
+      List<Long> ids = getSelectedIds(request, SELECTED_PERMISSIONS);
+      Long roleId = request.getContext().asType(Role.class).getId();
+      JPA.runInTransaction(
+          () -> {
+            Role role = roleRepository.find(roleId);
+            if (role.getPermissions() == null) {
+              role.setPermissions(new HashSet<>());
+            }
+            update(role.getPermissions(), ids, permissionRepository::find, add);
+            roleRepository.save(role);
+          });
+      response.setValue(SELECTED_PERMISSIONS, null);
+      response.setAttr("PanelPermission", "refresh", true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+
+  private void updateMetaPermissions(ActionRequest request, ActionResponse response, boolean add) {
+    try {
+      List<Long> ids = getSelectedIds(request, SELECTED_META_PERMISSIONS);
+      Long roleId = request.getContext().asType(Role.class).getId();
+      JPA.runInTransaction(
+          () -> {
+            Role role = roleRepository.find(roleId);
+            if (role.getMetaPermissions() == null) {
+              role.setMetaPermissions(new HashSet<>());
+            }
+            update(role.getMetaPermissions(), ids, metaPermissionRepository::find, add);
+            roleRepository.save(role);
+          });
+      response.setValue(SELECTED_META_PERMISSIONS, null);
+      response.setAttr("PanelField", "refresh", true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+
+  private <T> void update(Set<T> assigned, List<Long> ids, Function<Long, T> find, boolean add) {
+    for (Long id : ids) {
+      T permission = find.apply(id);
+      if (permission == null) {
+        continue;
+      }
+      if (add) {
+        assigned.add(permission);
+      } else {
+        assigned.remove(permission);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Long> getSelectedIds(ActionRequest request, String field) {
+    Object selected = request.getContext().get(field);
+    List<Long> ids = new ArrayList<>();
+    if (selected instanceof Collection) {
+      for (Object item : (Collection<Object>) selected) {
+        Object id = item instanceof Map ? ((Map<String, Object>) item).get("id") : null;
+        if (id != null) {
+          ids.add(Long.valueOf(Objects.toString(id)));
+        }
+      }
+    }
+    return ids;
+  }
+}
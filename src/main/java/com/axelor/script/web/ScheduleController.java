@@ -0,0 +1,44 @@
+package com.axelor.script.web;
+
+import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.rpc.ActionRequest;
+import com.axelor.rpc.ActionResponse;
+import com.axelor.script.service.ScriptScheduleService;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppScriptRepository;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+@Singleton
+public class ScheduleController {
+
+  private final ScriptScheduleService scriptScheduleService;
+
+  @Inject
+  public ScheduleController(ScriptScheduleService scriptScheduleService) {
+    this.scriptScheduleService = scriptScheduleService;
+  }
+
+  public void schedulePermission(ActionRequest request, ActionResponse response) {
+    enqueue(request, response, AppScriptRepository.JOB_TYPE_PERMISSION);
+  }
+
+  public void scheduleField(ActionRequest request, ActionResponse response) {
+    enqueue(request, response, AppScriptRepository.JOB_TYPE_FIELD);
+  }
+
+  public void scheduleTranslation(ActionRequest request, ActionResponse response) {
+    enqueue(request, response, AppScriptRepository.JOB_TYPE_TRANSLATION);
+  }
+
+  private void enqueue(ActionRequest request, ActionResponse response, String jobType) {
+    try {
+      AppScript appScript = request.getContext().asType(AppScript.class);
+      scriptScheduleService.enqueue(appScript, jobType);
+      response.setNotify("Job queued for the off-peak window.");
+      response.setReload(true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.axelor.script.web;
+
+import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.db.JPA;
+import com.axelor.meta.MetaFiles;
+import com.axelor.meta.db.MetaFile;
+import com.axelor.rpc.ActionRequest;
+import com.axelor.rpc.ActionResponse;
+import com.axelor.script.service.PermissionTransferService;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppScriptRepository;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Singleton
+public class TransferController {
+
+  private final PermissionTransferService permissionTransferService;
+  private final AppScriptRepository appScriptRepository;
+  private final MetaFiles metaFiles;
+
+  @Inject
+  public TransferController(
+      PermissionTransferService permissionTransferService,
+      AppScriptRepository appScriptRepository,
+      MetaFiles metaFiles) {
+    this.permissionTransferService = permissionTransferService;
+    this.appScriptRepository = appScriptRepository;
+    this.metaFiles = metaFiles;
+  }
+
+  public void exportPermissions(ActionRequest request, ActionResponse response) {
+    try {
+      Long appScriptId = request.getContext().asType(AppScript.class).getId();
+      Path file = MetaFiles.createTempFile("permissions", ".json.gz");
+      try (OutputStream out =
+          new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+        permissionTransferService.exportPermissions(out);
+      }
+
+      MetaFile metaFile = metaFiles.upload(file.toFile());
+      Files.deleteIfExists(file);
+      JPA.runInTransaction(
+          () -> {
+            metaFile.setFileName("permissions-" + LocalDate.now() + ".json.gz");
+            AppScript appScript = appScriptRepository.find(appScriptId);
+            appScript.setExportFile(metaFile);
+            appScriptRepository.save(appScript);
+          });
+      response.setReload(true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+
+  public void importPermissions(ActionRequest request, ActionResponse response) {
+    try {
+      AppScript appScript =
+          appScriptRepository.find(request.getContext().asType(AppScript.class).getId());
+      MetaFile importFile = appScript.getImportFile();
+      if (importFile == null) {
+        response.setError("Select the permission file to import first.");
+        return;
+      }
+
+      Path file = MetaFiles.getPath(importFile);
+      boolean gzip = importFile.getFileName().endsWith(".gz");
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+          InputStream input = gzip ? new GZIPInputStream(in) : in) {
+        response.setNotify(
+            "Imported permissions: " + permissionTransferService.importPermissions(input));
+      }
+      response.setReload(true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
+}
@@ -1,70 +1,40 @@
 package com.axelor.script.web;
 
-import com.axelor.apps.base.db.repo.CityRepository;
-import com.axelor.apps.base.db.repo.CountryRepository;
-import com.axelor.meta.db.MetaTranslation;
-import com.axelor.meta.db.repo.MetaTranslationRepository;
+import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.rpc.ActionRequest;
 import com.axelor.rpc.ActionResponse;
-import com.axelor.script.service.DictionaryService;
+import com.axelor.script.service.ScriptJobService;
+import com.axelor.studio.db.AppScript;
+import com.axelor.studio.db.repo.AppScriptRepository;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import com.google.inject.persist.Transactional;
-import java.util.List;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 @Singleton
 public class TranslationController {
 
-  private static final Logger logger = LoggerFactory.getLogger(TranslationController.class);
-
-  private final DictionaryService dictionaryService;
-  private final MetaTranslationRepository metaTranslationRepository;
-  private final CountryRepository countryRepository;
-  private final CityRepository cityRepository;
+  private final ScriptJobService scriptJobService;
 
   @Inject
-  public TranslationController(
-      DictionaryService dictionaryService,
-      MetaTranslationRepository metaTranslationRepository,
-      CountryRepository countryRepository,
-      CityRepository cityRepository) {
-    this.dictionaryService = dictionaryService;
-    this.metaTranslationRepository = metaTranslationRepository;
-    this.countryRepository = countryRepository;
-    this.cityRepository = cityRepository;
+  public TranslationController(ScriptJobService scriptJobService) {
+    this.scriptJobService = scriptJobService;
   }
 
-  @Transactional
+  /**
+   * Translates in the background as a script job, so that it holds the generation lease and never
+   * runs next to a scheduled translation advancing the same checkpoint.
+   */
   public void makeTranslation(ActionRequest request, ActionResponse response) {
-    List<MetaTranslation> metaTranslations = fetchUntranslatedMetaTranslations();
-    if (metaTranslations == null || metaTranslations.isEmpty()) {
-      logger.info("No untranslated MetaTranslations found.");
-      return;
-    }
-    for (MetaTranslation metaTranslation : metaTranslations) {
-      translateAndSaveMetaTranslation(metaTranslation);
-    }
-  }
-
-  private List<MetaTranslation> fetchUntranslatedMetaTranslations() {
-    return metaTranslationRepository
-        .all()
-        .filter("self.message IS NULL OR self.message = ''")
-        .fetch();
-  }
-
-  private void translateAndSaveMetaTranslation(MetaTranslation metaTranslation) {
     try {
-      String translatedText =
-          dictionaryService.getTranslation(
-              "en", metaTranslation.getLanguage(), metaTranslation.getKey());
-      metaTranslation.setMessage(translatedText);
-      metaTranslationRepository.save(metaTranslation);
-      logger.info("Translated and saved MetaTranslation: {}", metaTranslation);
+      AppScript appScript = request.getContext().asType(AppScript.class);
+      if (scriptJobService.start(appScript, AppScriptRepository.JOB_TYPE_TRANSLATION)) {
+        response.setNotify("Translation started in background.");
+      } else {
+        response.setNotify(
+            "A generation is already running on another node, showing its progress.");
+      }
+      response.setReload(true);
     } catch (Exception e) {
-      logger.error("Error translating MetaTranslation with key: " + metaTranslation.getKey(), e);
+      TraceBackService.trace(response, e);
     }
   }
 }
@@ -0,0 +1,133 @@
+package com.axelor.script.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PermissionPlanTest {
+
+  private PermissionPlan plan;
+
+  @Before
+  public void setUp() {
+    // the second model has no generated field, its offset range is empty
+    plan =
+        new PermissionPlan(
+            Arrays.asList(1L, 2L),
+            Arrays.asList("admin", "user"),
+            Arrays.asList(10L, 20L, 30L),
+            Arrays.asList("Partner", "Company", "Invoice"),
+            Arrays.asList(
+                "com.axelor.apps.base.db.Partner",
+                "com.axelor.apps.base.db.Company",
+                "com.axelor.apps.account.db.Invoice"),
+            Arrays.asList(
+                Arrays.asList("name", "code"),
+                Collections.emptyList(),
+                Arrays.asList("amount", "partner", "company")));
+  }
+
+  @Test
+  public void testPermissionInsertsSkipCurrentGrants() {
+    plan.setDesiredGrant(0, 0);
+    plan.setDesiredGrant(0, 2);
+    plan.setDesiredGrant(1, 1);
+    plan.setCurrentGrant(0, 2);
+    plan.setCurrentGrant(1, 0);
+
+    List<String> inserts = new ArrayList<>();
+    plan.forEachPermissionInsert((role, model) -> inserts.add(plan.getPermissionName(role, model)));
+
+    Assert.assertEquals(Arrays.asList("admin.Partner", "user.Company"), inserts);
+  }
+
+  @Test
+  public void testRuleInsertsResolveModelFromBitOffset() {
+    plan.setDesiredRule(0, 0, "name");
+    plan.setDesiredRule(0, 0, "code");
+    plan.setDesiredRule(0, 2, "amount");
+    plan.setDesiredRule(0, 2, "company");
+    plan.setDesiredRule(1, 0, "code");
+    plan.setDesiredRule(1, 2, "partner");
+    plan.setCurrentRule(0, 0, "code");
+    plan.setCurrentRule(1, 2, "partner");
+
+    Assert.assertEquals(
+        Arrays.asList(
+            "admin.Partner.name",
+            "admin.Invoice.amount",
+            "admin.Invoice.company",
+            "user.Partner.code"),
+        ruleInserts());
+  }
+
+  @Test
+  public void testFirstAndLastFieldBits() {
+    plan.setDesiredRule(1, 0, "name");
+    plan.setDesiredRule(1, 2, "company");
+
+    Assert.assertEquals(Arrays.asList("user.Partner.name", "user.Invoice.company"), ruleInserts());
+  }
+
+  @Test
+  public void testUnknownFieldsAreIgnored() {
+    plan.setDesiredRule(0, 0, "amount");
+    plan.setDesiredRule(0, 1, "name");
+    plan.setCurrentRule(0, 2, "name");
+
+    Assert.assertTrue(ruleInserts().isEmpty());
+  }
+
+  @Test
+  public void testRuleDeletes() {
+    plan.addRuleDelete(0, 2, "amount", 100L);
+    plan.addRuleDelete(1, 0, "name", 101L);
+
+    List<String> deletes = new ArrayList<>();
+    plan.forEachRuleDelete(
+        (role, model, field) -> deletes.add(plan.getPermissionName(role, model) + "." + field));
+
+    Assert.assertEquals(Arrays.asList("admin.Invoice.amount", "user.Partner.name"), deletes);
+    Assert.assertEquals(Arrays.asList(100L, 101L), plan.getRuleDeleteIds());
+  }
+
+  @Test
+  public void testStatistics() {
+    plan.setDesiredGrant(0, 0);
+    plan.setDesiredGrant(1, 2);
+    plan.setCurrentGrant(1, 2);
+    plan.setDesiredRule(0, 0, "name");
+    plan.setDesiredRule(0, 2, "amount");
+    plan.setDesiredRule(1, 2, "partner");
+    plan.addRuleDelete(1, 0, "code", 100L);
+
+    Assert.assertEquals(Integer.valueOf(1), plan.getStatistics().get("permissionInserts"));
+    Assert.assertEquals(Integer.valueOf(3), plan.getStatistics().get("ruleInserts"));
+    Assert.assertEquals(Integer.valueOf(1), plan.getStatistics().get("ruleDeletes"));
+  }
+
+  @Test
+  public void testFingerprint() {
+    String empty = plan.getFingerprint();
+    plan.setDesiredRule(0, 2, "amount");
+    String withRule = plan.getFingerprint();
+    plan.setCurrentRule(0, 2, "amount");
+
+    Assert.assertNotEquals(empty, withRule);
+    Assert.assertEquals(empty, plan.getFingerprint());
+
+    plan.addRuleDelete(0, 2, "amount", 100L);
+    Assert.assertNotEquals(empty, plan.getFingerprint());
+  }
+
+  private List<String> ruleInserts() {
+    List<String> inserts = new ArrayList<>();
+    plan.forEachRuleInsert(
+        (role, model, field) -> inserts.add(plan.getPermissionName(role, model) + "." + field));
+    return inserts;
+  }
+}
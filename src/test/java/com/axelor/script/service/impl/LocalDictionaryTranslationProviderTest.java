@@ -0,0 +1,108 @@
+package com.axelor.script.service.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalDictionaryTranslationProviderTest {
+
+  // sorted byte-wise, as LC_ALL=C sort does
+  private static final List<String> LINES =
+      Arrays.asList(
+          "en\tde\tName\tName",
+          "en\tfr\tDate\tDate",
+          "en\tfr\tName\tNom",
+          "en\tfr\tName of\\tpartner\tNom du\\ntiers",
+          "en\tfr\tNames\tNoms",
+          "fr\ten\tNom\tName");
+
+  private Path path;
+
+  @Before
+  public void setUp() throws IOException {
+    path = Files.createTempFile("dictionary", ".tsv");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  @Test
+  public void testFirstAndLastLines() throws IOException {
+    LocalDictionaryTranslationProvider provider = provider(String.join("\n", LINES) + "\n");
+
+    Assert.assertEquals("Name", provider.translate("en", "de", "Name"));
+    Assert.assertEquals("Name", provider.translate("fr", "en", "Nom"));
+  }
+
+  @Test
+  public void testLastLineWithoutNewLine() throws IOException {
+    LocalDictionaryTranslationProvider provider = provider(String.join("\n", LINES));
+
+    Assert.assertEquals("Name", provider.translate("en", "de", "Name"));
+    Assert.assertEquals("Name", provider.translate("fr", "en", "Nom"));
+    Assert.assertNull(provider.translate("fr", "en", "No"));
+  }
+
+  @Test
+  public void testEveryLineIsFound() throws IOException {
+    LocalDictionaryTranslationProvider provider = provider(String.join("\n", LINES) + "\n");
+
+    Assert.assertEquals("Date", provider.translate("en", "fr", "Date"));
+    Assert.assertEquals("Nom", provider.translate("en", "fr", "Name"));
+    Assert.assertEquals("Noms", provider.translate("en", "fr", "Names"));
+  }
+
+  @Test
+  public void testPrefixOfAnotherKeyIsNotMatched() throws IOException {
+    LocalDictionaryTranslationProvider provider = provider(String.join("\n", LINES) + "\n");
+
+    Assert.assertNull(provider.translate("en", "fr", "Nam"));
+    Assert.assertNull(provider.translate("en", "fr", "Name o"));
+    Assert.assertNull(provider.translate("en", "f", "Name"));
+  }
+
+  @Test
+  public void testMissingKeysOutsideTheFile() throws IOException {
+    LocalDictionaryTranslationProvider provider = provider(String.join("\n", LINES) + "\n");
+
+    Assert.assertNull(provider.translate("de", "en", "Name"));
+    Assert.assertNull(provider.translate("zh", "en", "Name"));
+    Assert.assertNull(provider.translate("en", "fr", "Zone"));
+  }
+
+  @Test
+  public void testEscapedTexts() throws IOException {
+    LocalDictionaryTranslationProvider provider = provider(String.join("\n", LINES) + "\n");
+
+    Assert.assertEquals("Nom du\ntiers", provider.translate("en", "fr", "Name of\tpartner"));
+  }
+
+  @Test
+  public void testSingleLineAndEmptyFiles() throws IOException {
+    Assert.assertEquals("Nom", provider("en\tfr\tName\tNom").translate("en", "fr", "Name"));
+    Assert.assertNull(provider("en\tfr\tName\tNom\n").translate("en", "fr", "Date"));
+    Assert.assertNull(provider("").translate("en", "fr", "Name"));
+  }
+
+  @Test
+  public void testEscapeRoundTrip() {
+    String text = "a\tb\nc\\d\\te";
+
+    Assert.assertEquals("a\\tb\\nc\\\\d\\\\te", TabSeparatedText.escape(text));
+    Assert.assertEquals(text, TabSeparatedText.unescape(TabSeparatedText.escape(text)));
+  }
+
+  private LocalDictionaryTranslationProvider provider(String content) throws IOException {
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    return new LocalDictionaryTranslationProvider(path);
+  }
+}
@@ -0,0 +1,92 @@
+package com.axelor.script.service.impl;
+
+import com.axelor.studio.db.AppScript;
+import java.time.LocalTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScriptScheduleServiceImplTest {
+
+  private ScriptScheduleServiceImpl scheduleService;
+  private AppScript appScript;
+
+  @Before
+  public void setUp() {
+    scheduleService = new ScriptScheduleServiceImpl(null, null, null);
+    appScript = new AppScript();
+  }
+
+  @Test
+  public void testWindowWithinADay() {
+    setWindow("13:00", "15:30");
+
+    Assert.assertFalse(isOffPeak("12:59:59"));
+    Assert.assertTrue(isOffPeak("13:00"));
+    Assert.assertTrue(isOffPeak("15:29:59"));
+    Assert.assertFalse(isOffPeak("15:30"));
+    Assert.assertFalse(isOffPeak("00:00"));
+  }
+
+  @Test
+  public void testWindowCrossingMidnight() {
+    setWindow("22:00", "06:00");
+
+    Assert.assertFalse(isOffPeak("21:59:59"));
+    Assert.assertTrue(isOffPeak("22:00"));
+    Assert.assertTrue(isOffPeak("23:59:59.999"));
+    Assert.assertTrue(isOffPeak("00:00"));
+    Assert.assertTrue(isOffPeak("05:59:59"));
+    Assert.assertFalse(isOffPeak("06:00"));
+    Assert.assertFalse(isOffPeak("12:00"));
+  }
+
+  @Test
+  public void testWindowEndingAtMidnight() {
+    setWindow("20:00", "00:00");
+
+    Assert.assertFalse(isOffPeak("19:59:59"));
+    Assert.assertTrue(isOffPeak("20:00"));
+    Assert.assertTrue(isOffPeak("23:59:59.999"));
+    Assert.assertFalse(isOffPeak("00:00"));
+    Assert.assertFalse(isOffPeak("06:00"));
+  }
+
+  @Test
+  public void testWindowStartingAtMidnight() {
+    setWindow("00:00", "05:00");
+
+    Assert.assertTrue(isOffPeak("00:00"));
+    Assert.assertTrue(isOffPeak("04:59:59"));
+    Assert.assertFalse(isOffPeak("05:00"));
+    Assert.assertFalse(isOffPeak("23:59:59"));
+  }
+
+  @Test
+  public void testSameStartAndEndCoversTheWholeDay() {
+    setWindow("02:00", "02:00");
+
+    Assert.assertTrue(isOffPeak("02:00"));
+    Assert.assertTrue(isOffPeak("01:59:59"));
+    Assert.assertTrue(isOffPeak("14:00"));
+  }
+
+  @Test
+  public void testIncompleteWindowIsNeverOffPeak() {
+    appScript.setChatLimit(LocalTime.parse("22:00"));
+    Assert.assertFalse(isOffPeak("23:00"));
+
+    appScript.setChatLimit(null);
+    appScript.setOffPeakEnd(LocalTime.parse("06:00"));
+    Assert.assertFalse(isOffPeak("01:00"));
+  }
+
+  private void setWindow(String start, String end) {
+    appScript.setChatLimit(LocalTime.parse(start));
+    appScript.setOffPeakEnd(LocalTime.parse(end));
+  }
+
+  private boolean isOffPeak(String time) {
+    return scheduleService.isOffPeak(appScript, LocalTime.parse(time));
+  }
+}
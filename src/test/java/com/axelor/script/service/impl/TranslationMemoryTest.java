@@ -0,0 +1,112 @@
+package com.axelor.script.service.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TranslationMemoryTest {
+
+  private Path directory;
+  private Path path;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("translation-memory");
+    path = directory.resolve("memory/translation-memory.tsv");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  @Test
+  public void testLineFormat() throws IOException {
+    TranslationMemory memory = new TranslationMemory(10, path);
+    memory.put("en", "fr", "Name", "Nom");
+    memory.put("en", "fr", "Tab\there", "Tab\\ici\nsuite");
+
+    Assert.assertEquals(
+        Arrays.asList("en\tfr\tName\tNom", "en\tfr\tTab here\tTab\\\\ici\\nsuite"),
+        Files.readAllLines(path, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testReloadReadsFromDisk() {
+    TranslationMemory memory = new TranslationMemory(10, path);
+    memory.put("en", "fr", "Name", "Nom");
+    memory.put("en", "fr", "Tab\there", "Tab\\ici\nsuite");
+    memory.put("en", "de", "Name", "Name");
+
+    TranslationMemory reloaded = new TranslationMemory(10, path);
+    Assert.assertEquals("Nom", reloaded.get("en", "fr", "Name"));
+    Assert.assertEquals("Tab\\ici\nsuite", reloaded.get("en", "fr", "Tab\there"));
+    Assert.assertEquals("Name", reloaded.get("en", "de", "Name"));
+    Assert.assertNull(reloaded.get("fr", "en", "Nom"));
+
+    Assert.assertEquals(Long.valueOf(3), reloaded.getStatistics().get("diskEntries"));
+    Assert.assertEquals(Long.valueOf(3), reloaded.getStatistics().get("diskHits"));
+    Assert.assertEquals(Long.valueOf(1), reloaded.getStatistics().get("misses"));
+  }
+
+  @Test
+  public void testLaterLinesOverrideEarlierOnes() throws IOException {
+    TranslationMemory memory = new TranslationMemory(10, path);
+    memory.put("en", "fr", "Name", "Nom");
+    memory.put("en", "fr", "Name", "Nom");
+    memory.put("en", "fr", "Name", "Intitul\u00e9");
+
+    Assert.assertEquals(2, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+    Assert.assertEquals("Intitul\u00e9", new TranslationMemory(10, path).get("en", "fr", "Name"));
+  }
+
+  @Test
+  public void testIncompleteLastLineIsDropped() throws IOException {
+    Files.createDirectories(path.getParent());
+    Files.write(path, "en\tfr\tName\tNom\nen\tfr\tDate\tDa".getBytes(StandardCharsets.UTF_8));
+
+    TranslationMemory memory = new TranslationMemory(10, path);
+    Assert.assertEquals("Nom", memory.get("en", "fr", "Name"));
+    Assert.assertNull(memory.get("en", "fr", "Date"));
+
+    memory.put("en", "fr", "Date", "Date");
+    List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+    Assert.assertEquals(Arrays.asList("en\tfr\tName\tNom", "en\tfr\tDate\tDate"), lines);
+    Assert.assertEquals("Date", new TranslationMemory(10, path).get("en", "fr", "Date"));
+  }
+
+  @Test
+  public void testEvictedEntriesAreReadFromDisk() {
+    TranslationMemory memory = new TranslationMemory(1, path);
+    memory.put("en", "fr", "Name", "Nom");
+    memory.put("en", "fr", "Date", "Date");
+
+    Assert.assertEquals(Long.valueOf(1), memory.getStatistics().get("memoryEntries"));
+    Assert.assertEquals("Nom", memory.get("en", "fr", "Name"));
+    Assert.assertEquals("Nom", memory.get("en", "fr", "Name"));
+    Assert.assertEquals(Long.valueOf(1), memory.getStatistics().get("diskHits"));
+    Assert.assertEquals(Long.valueOf(1), memory.getStatistics().get("memoryHits"));
+  }
+
+  @Test
+  public void testTextIsNormalized() {
+    TranslationMemory memory = new TranslationMemory(10, path);
+    memory.put("en", "fr", "  Partner \n name ", "Nom du tiers");
+
+    Assert.assertEquals("Partner name", TranslationMemory.normalize("  Partner \n name "));
+    Assert.assertEquals("Nom du tiers", memory.get("en", "fr", "Partner name"));
+    Assert.assertEquals(
+        "Nom du tiers", new TranslationMemory(10, path).get("en", "fr", "Partner\tname"));
+  }
+}